@@ -0,0 +1,116 @@
+package de.mineking.audiolink.client.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Encoded audio data, for example the content of a mp3-file, that is sent to a source instead of a url. The data is kept in fixed-size chunks, so that it never has to be copied into a single large array.
+ * Every instance is identified by the SHA-256 hash of its content, which allows sources to deduplicate uploads.
+ */
+public final class AudioData {
+	private final static int CHUNK_SIZE = 64 * 1024;
+
+	private final List<byte[]> chunks;
+	private final long size;
+	private final String hash;
+
+	private AudioData(List<byte[]> chunks, long size, String hash) {
+		this.chunks = Collections.unmodifiableList(chunks);
+		this.size = size;
+		this.hash = hash;
+	}
+
+	/**
+	 * Reads the stream until its end. The stream is not closed.
+	 *
+	 * @param stream the {@link InputStream} containing the audio data
+	 * @return the resulting {@link AudioData}
+	 * @throws IOException if reading the stream fails
+	 */
+	public static AudioData read(InputStream stream) throws IOException {
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		var chunks = new ArrayList<byte[]>();
+		var size = 0L;
+
+		while(true) {
+			var chunk = stream.readNBytes(CHUNK_SIZE);
+
+			if(chunk.length == 0) {
+				break;
+			}
+
+			digest.update(chunk);
+			chunks.add(chunk);
+			size += chunk.length;
+
+			if(chunk.length < CHUNK_SIZE) {
+				break;
+			}
+		}
+
+		return new AudioData(chunks, size, HexFormat.of().formatHex(digest.digest()));
+	}
+
+	/**
+	 * @return the hex encoded SHA-256 hash of the content
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	/**
+	 * @return the size of the content in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the chunks of the content in order
+	 */
+	public List<byte[]> getChunks() {
+		return chunks;
+	}
+
+	/**
+	 * @return the content encoded as base64. This is used for sources that do not support uploads
+	 */
+	public String toBase64() {
+		var out = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, (size + 2) / 3 * 4));
+
+		try(var encoder = Base64.getEncoder().wrap(out)) {
+			for(var chunk : chunks) {
+				encoder.write(chunk);
+			}
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return out.toString();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof AudioData other && other.hash.equals(hash);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash.hashCode();
+	}
+}
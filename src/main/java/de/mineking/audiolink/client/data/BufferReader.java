@@ -0,0 +1,79 @@
+package de.mineking.audiolink.client.data;
+
+import java.io.DataInputStream;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+
+/**
+ * Helper methods to read data written by a {@link java.io.DataOutputStream} directly from a {@link ByteBuffer}. This works for heap, direct and sliced buffers and does not copy the buffer.
+ */
+public final class BufferReader {
+	private BufferReader() {}
+
+	/**
+	 * @param in the buffer to read from
+	 * @return the boolean at the current position of the buffer
+	 * @see DataInputStream#readBoolean()
+	 */
+	public static boolean readBoolean(ByteBuffer in) {
+		return in.get() != 0;
+	}
+
+	/**
+	 * @param in the buffer to read from
+	 * @return the modified UTF-8 string at the current position of the buffer
+	 * @throws UTFDataFormatException if the data is not valid modified UTF-8
+	 * @see DataInputStream#readUTF()
+	 */
+	public static String readUTF(ByteBuffer in) throws UTFDataFormatException {
+		var length = in.getShort() & 0xFFFF;
+		var chars = new char[length];
+		var count = 0;
+
+		for(var end = in.position() + length; in.position() < end; ) {
+			int a = in.get() & 0xFF;
+
+			if(a < 0x80) {
+				chars[count++] = (char) a;
+			}
+
+			else if((a & 0xE0) == 0xC0) {
+				int b = in.get() & 0xFF;
+
+				if((b & 0xC0) != 0x80) {
+					throw new UTFDataFormatException("Malformed input around byte " + in.position());
+				}
+
+				chars[count++] = (char) (((a & 0x1F) << 6) | (b & 0x3F));
+			}
+
+			else if((a & 0xF0) == 0xE0) {
+				int b = in.get() & 0xFF;
+				int c = in.get() & 0xFF;
+
+				if((b & 0xC0) != 0x80 || (c & 0xC0) != 0x80) {
+					throw new UTFDataFormatException("Malformed input around byte " + in.position());
+				}
+
+				chars[count++] = (char) (((a & 0x0F) << 12) | ((b & 0x3F) << 6) | (c & 0x3F));
+			}
+
+			else {
+				throw new UTFDataFormatException("Malformed input around byte " + in.position());
+			}
+		}
+
+		return new String(chars, 0, count);
+	}
+
+	/**
+	 * Skips the modified UTF-8 string at the current position of the buffer without decoding it
+	 *
+	 * @param in the buffer to read from
+	 * @see #readUTF(ByteBuffer)
+	 */
+	public static void skipUTF(ByteBuffer in) {
+		var length = in.getShort() & 0xFFFF;
+		in.position(in.position() + length);
+	}
+}
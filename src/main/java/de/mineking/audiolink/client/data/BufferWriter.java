@@ -0,0 +1,50 @@
+package de.mineking.audiolink.client.data;
+
+import java.io.DataOutputStream;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+
+/**
+ * Helper methods to write data that can be read by a {@link java.io.DataInputStream} or {@link BufferReader} directly to a {@link ByteBuffer}.
+ */
+public final class BufferWriter {
+	private BufferWriter() {}
+
+	/**
+	 * @param out    the buffer to write to
+	 * @param string the string to write as modified UTF-8
+	 * @throws UTFDataFormatException if the encoded string is longer than 65535 bytes
+	 * @see DataOutputStream#writeUTF(String)
+	 */
+	public static void writeUTF(ByteBuffer out, String string) throws UTFDataFormatException {
+		var start = out.position();
+		out.putShort((short) 0);
+
+		for(int i = 0; i < string.length(); i++) {
+			var c = string.charAt(i);
+
+			if(c != 0 && c < 0x80) {
+				out.put((byte) c);
+			}
+
+			else if(c < 0x800) {
+				out.put((byte) (0xC0 | (c >> 6)));
+				out.put((byte) (0x80 | (c & 0x3F)));
+			}
+
+			else {
+				out.put((byte) (0xE0 | (c >> 12)));
+				out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				out.put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+
+		var length = out.position() - start - 2;
+
+		if(length > 0xFFFF) {
+			throw new UTFDataFormatException("Encoded string too long: " + length + " bytes");
+		}
+
+		out.putShort(start, (short) length);
+	}
+}
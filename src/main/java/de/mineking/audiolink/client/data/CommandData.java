@@ -5,9 +5,15 @@ import java.util.Map;
 public class CommandData {
 	public final String command;
 	public final Map<String, Object> args;
+	public final Integer session;
 
-	public CommandData(String command, Map<String, Object> args) {
+	public CommandData(String command, Map<String, Object> args, Integer session) {
 		this.command = command;
 		this.args = args;
+		this.session = session;
+	}
+
+	public CommandData(String command, Map<String, Object> args) {
+		this(command, args, null);
 	}
 }
@@ -0,0 +1,115 @@
+package de.mineking.audiolink.client.data;
+
+import de.mineking.audiolink.client.main.AudioLinkClient;
+import de.mineking.audiolink.client.main.AudioLinkSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A {@link TrackLoader} for audio data from an {@link InputStream}. The stream is read once on first use, so the loader can be played multiple times.
+ * If the source supports uploads, the data is uploaded once and referenced by its id. Otherwise, it is embedded into the play command.
+ */
+final class StreamTrackLoader implements TrackLoader {
+	private InputStream stream;
+	private CompletableFuture<AudioData> data;
+
+	StreamTrackLoader(InputStream stream) {
+		this.stream = stream;
+	}
+
+	StreamTrackLoader(AudioData data) {
+		this.data = CompletableFuture.completedFuture(data);
+	}
+
+	/**
+	 * @param executor the {@link Executor} to read the stream on if it was not read yet
+	 * @return a {@link CompletableFuture} that is completed with the data
+	 */
+	private synchronized CompletableFuture<AudioData> getData(Executor executor) {
+		if(data == null) {
+			var temp = stream;
+
+			stream = null;
+
+			try {
+				data = CompletableFuture.supplyAsync(() -> {
+					try {
+						return AudioData.read(temp);
+					} catch(IOException e) {
+						throw new CompletionException(e);
+					}
+				}, executor);
+			} catch(RejectedExecutionException e) {
+				//Keep the stream, so that it can be read once an executor is available
+				stream = temp;
+				return CompletableFuture.failedFuture(e);
+			}
+		}
+
+		return data;
+	}
+
+	private static IOException unwrap(CompletionException e) {
+		return e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+	}
+
+	@Override
+	public void applyData(Map<String, Object> arguments) throws IOException {
+		try {
+			//Blocking callers read the stream on their own thread
+			arguments.put("data", getData(Runnable::run).join().toBase64());
+		} catch(CompletionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	@Override
+	public void applyData(AudioLinkSource source, Map<String, Object> arguments) throws IOException {
+		try {
+			apply(null, source, arguments, Runnable::run).join();
+		} catch(CompletionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> applyDataAsync(AudioLinkClient client, AudioLinkSource source, Map<String, Object> arguments) {
+		return apply(client, source, arguments, client.ioExecutor);
+	}
+
+	private CompletableFuture<Void> apply(AudioLinkClient client, AudioLinkSource source, Map<String, Object> arguments, Executor executor) {
+		return getData(executor).thenCompose(data -> source.upload(client, data).thenAccept(id -> {
+			if(id.isPresent()) {
+				arguments.put("upload", id.get());
+			}
+
+			else {
+				arguments.put("data", data.toBase64());
+			}
+		}));
+	}
+
+	@Override
+	public void invalidate(AudioLinkSource source) {
+		CompletableFuture<AudioData> temp;
+
+		synchronized(this) {
+			temp = data;
+		}
+
+		if(temp == null) {
+			return;
+		}
+
+
+		if(temp.isDone() && !temp.isCompletedExceptionally()) {
+			source.invalidateUpload(temp.join());
+		}
+	}
+}
@@ -1,12 +1,14 @@
 package de.mineking.audiolink.client.data;
 
+import de.mineking.audiolink.client.main.AssetRegistry;
 import de.mineking.audiolink.client.main.AudioLinkClient;
+import de.mineking.audiolink.client.main.AudioLinkSource;
 import de.mineking.audiolink.client.processing.AudioLinkConnection;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Base64;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public interface TrackLoader {
@@ -18,6 +20,43 @@ public interface TrackLoader {
 	 */
 	void applyData(Map<String, Object> arguments) throws IOException;
 
+	/**
+	 * Apply the required data to the parameter map of a play command that is sent to a specific source. Use this to make use of features the source supports, like uploads.
+	 *
+	 * @param source    the {@link AudioLinkSource} the command is sent to
+	 * @param arguments the parameter map to modify
+	 * @throws IOException if something went wrong
+	 */
+	default void applyData(AudioLinkSource source, Map<String, Object> arguments) throws IOException {
+		applyData(arguments);
+	}
+
+	/**
+	 * Apply the required data to the parameter map of a play command that is sent to a specific source without blocking the calling thread. Override this if applying the data requires network requests.
+	 *
+	 * @param client    the {@link AudioLinkClient} that sends the command. Use its executors and http client for any work that would block
+	 * @param source    the {@link AudioLinkSource} the command is sent to
+	 * @param arguments the parameter map to modify. It must not be accessed before the returned future completed
+	 * @return a {@link CompletableFuture} that is completed once the data was applied
+	 * @see #applyData(AudioLinkSource, Map)
+	 */
+	default CompletableFuture<Void> applyDataAsync(AudioLinkClient client, AudioLinkSource source, Map<String, Object> arguments) {
+		try {
+			applyData(source, arguments);
+			return CompletableFuture.completedFuture(null);
+		} catch(IOException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/**
+	 * Called when a source failed to load the data this loader applied, for example because the source no longer knows an uploaded id. The next call of {@link #applyDataAsync(AudioLinkClient, AudioLinkSource, Map)} should not reuse any state cached for that source.
+	 *
+	 * @param source the {@link AudioLinkSource} that failed to load the data
+	 */
+	default void invalidate(AudioLinkSource source) {
+	}
+
 	/**
 	 * Load a track from a url. WARNING: This has to be a valid URL. You can NOT use search prefixes here
 	 *
@@ -32,10 +71,61 @@ public interface TrackLoader {
 	/**
 	 * Load a track from an input stream. This can for example be used if you for example have a mp3-file in your resources that you want to play.
 	 *
-	 * @param stream the {@link InputStream} containing your audio data
+	 * @param stream the {@link InputStream} containing your audio data. It is read completely when the track is played first
 	 * @return the {@link TrackLoader} that can be used in {@link AudioLinkConnection#playTrack(PlayerLayer, TrackLoader)}
+	 * @implNote If the source supports uploads, the data is uploaded via http and the play command only references it. Identical data is only uploaded once per source
 	 */
 	static TrackLoader fromStream(InputStream stream) {
-		return arguments -> arguments.put("data", Base64.getEncoder().encodeToString(stream.readAllBytes()));
+		return new StreamTrackLoader(stream);
+	}
+
+	/**
+	 * @param data the {@link AudioData} to play
+	 * @return the {@link TrackLoader} that can be used in {@link AudioLinkConnection#playTrack(PlayerLayer, TrackLoader)}
+	 * @see #fromStream(InputStream)
+	 */
+	static TrackLoader fromData(AudioData data) {
+		return new StreamTrackLoader(data);
+	}
+
+	/**
+	 * Load a clip from an {@link AssetRegistry}. The clip is resolved when the track is played, so that a replaced clip is played with its new data.
+	 * Playing fails if the clip was removed from the registry in the meantime. Use the loader returned by {@link AssetRegistry#register(String, AudioData)} to keep the data of the clip.
+	 *
+	 * @param assets the {@link AssetRegistry} the clip is registered in
+	 * @param name   the name of the clip
+	 * @return the {@link TrackLoader} that can be used in {@link AudioLinkConnection#playTrack(PlayerLayer, TrackLoader)}
+	 * @see AudioLinkClient#getAssets()
+	 */
+	static TrackLoader fromAsset(AssetRegistry assets, String name) {
+		return new TrackLoader() {
+			private TrackLoader resolve() throws IOException {
+				return fromData(assets.get(name).orElseThrow(() -> new IOException("Unknown asset: " + name)));
+			}
+
+			@Override
+			public void applyData(Map<String, Object> arguments) throws IOException {
+				resolve().applyData(arguments);
+			}
+
+			@Override
+			public void applyData(AudioLinkSource source, Map<String, Object> arguments) throws IOException {
+				resolve().applyData(source, arguments);
+			}
+
+			@Override
+			public CompletableFuture<Void> applyDataAsync(AudioLinkClient client, AudioLinkSource source, Map<String, Object> arguments) {
+				try {
+					return resolve().applyDataAsync(client, source, arguments);
+				} catch(IOException e) {
+					return CompletableFuture.failedFuture(e);
+				}
+			}
+
+			@Override
+			public void invalidate(AudioLinkSource source) {
+				assets.get(name).ifPresent(source::invalidateUpload);
+			}
+		};
 	}
 }
@@ -0,0 +1,169 @@
+package de.mineking.audiolink.client.data.track;
+
+import de.mineking.audiolink.client.data.URLProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A memory-compact, immutable form of {@link TrackData} for long queues. The strings that are unique per track are stored as UTF-8 in a single array, while the author and the host of the artwork url are shared between tracks.
+ * <p>
+ * This is a separate storage form and not a {@link TrackData} or {@link TrackCollection}, so it cannot be passed to methods that expect one. Use {@link #toTrackData()} to convert it back, for example before playing it.
+ * The strings are decoded on every access, so also use {@link #toTrackData()} if a track is accessed frequently.
+ */
+public final class CompactTrackData implements URLProvider {
+	private final static int URL = 0;
+	private final static int TITLE = 1;
+	private final static int IDENTIFIER = 2;
+	private final static int ISRC = 3;
+	private final static int ARTWORK = 4;
+	private final static int FIELDS = 5;
+
+	//The end offsets of the fields as 4-byte integers, followed by the UTF-8 encoded fields
+	private final byte[] data;
+	private final byte nulls;
+
+	private final String author;
+	private final String artworkPrefix;
+
+	public final long length;
+	public final boolean isStream;
+
+	public CompactTrackData(TrackData track) {
+		this.author = StringPool.intern(track.author);
+		this.length = track.length;
+		this.isStream = track.isStream;
+
+		var artwork = track.artworkUrl;
+		var prefixLength = artwork == null ? 0 : hostPrefixLength(artwork);
+
+		this.artworkPrefix = prefixLength == 0 ? "" : StringPool.intern(artwork.substring(0, prefixLength));
+
+		var fields = new byte[FIELDS][];
+		var nullMask = 0;
+
+		fields[URL] = encode(track.url);
+		fields[TITLE] = encode(track.title);
+		fields[IDENTIFIER] = encode(track.identifier);
+		fields[ISRC] = encode(track.isrc);
+		fields[ARTWORK] = encode(artwork == null ? null : artwork.substring(prefixLength));
+
+		var size = FIELDS * Integer.BYTES;
+
+		for(int i = 0; i < FIELDS; i++) {
+			if(fields[i] == null) {
+				nullMask |= 1 << i;
+			}
+
+			else {
+				size += fields[i].length;
+			}
+		}
+
+		this.data = new byte[size];
+		this.nulls = (byte) nullMask;
+
+		var offset = FIELDS * Integer.BYTES;
+
+		for(int i = 0; i < FIELDS; i++) {
+			if(fields[i] != null) {
+				System.arraycopy(fields[i], 0, data, offset, fields[i].length);
+				offset += fields[i].length;
+			}
+
+			data[i * 4] = (byte) (offset >>> 24);
+			data[i * 4 + 1] = (byte) (offset >>> 16);
+			data[i * 4 + 2] = (byte) (offset >>> 8);
+			data[i * 4 + 3] = (byte) offset;
+		}
+	}
+
+	/**
+	 * @param url the url
+	 * @return the length of the scheme and host part of the url including the following slash or {@code 0} if the url has no host
+	 */
+	private static int hostPrefixLength(String url) {
+		var scheme = url.indexOf("://");
+
+		if(scheme < 0) {
+			return 0;
+		}
+
+		var path = url.indexOf('/', scheme + 3);
+		return path < 0 ? 0 : path + 1;
+	}
+
+	private static byte[] encode(String value) {
+		return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private int end(int field) {
+		var i = field * 4;
+		return ((data[i] & 0xFF) << 24) | ((data[i + 1] & 0xFF) << 16) | ((data[i + 2] & 0xFF) << 8) | (data[i + 3] & 0xFF);
+	}
+
+	private String get(int field) {
+		if((nulls & (1 << field)) != 0) {
+			return null;
+		}
+
+		var start = field == 0 ? FIELDS * Integer.BYTES : end(field - 1);
+		return new String(data, start, end(field) - start, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public String getUrl() {
+		return get(URL);
+	}
+
+	public String getTitle() {
+		return get(TITLE);
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	public String getArtworkUrl() {
+		var suffix = get(ARTWORK);
+		return suffix == null ? null : artworkPrefix + suffix;
+	}
+
+	public String getIdentifier() {
+		return get(IDENTIFIER);
+	}
+
+	public String getIsrc() {
+		return get(ISRC);
+	}
+
+	/**
+	 * @return a new {@link TrackData} with the data of this track
+	 */
+	public TrackData toTrackData() {
+		return new TrackData(getUrl(), getTitle(), author, getArtworkUrl(), length, isStream, getIdentifier(), getIsrc());
+	}
+
+	/**
+	 * Writes this track in the same format as {@link TrackData#write(DataOutputStream)}
+	 *
+	 * @param out the stream to write to
+	 * @throws IOException if writing fails
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		toTrackData().write(out);
+	}
+
+	/**
+	 * @return this track in the same format as {@link TrackData#getData()}
+	 * @throws IOException if encoding fails
+	 */
+	public byte[] getData() throws IOException {
+		var baos = new ByteArrayOutputStream();
+		write(new DataOutputStream(baos));
+
+		return baos.toByteArray();
+	}
+}
@@ -2,6 +2,7 @@ package de.mineking.audiolink.client.data.track;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public class CurrentTrackData extends TrackData {
 	public final long position;
@@ -11,4 +12,10 @@ public class CurrentTrackData extends TrackData {
 
 		this.position = in.readLong();
 	}
+
+	public CurrentTrackData(ByteBuffer in) throws IOException {
+		super(in);
+
+		this.position = in.getLong();
+	}
 }
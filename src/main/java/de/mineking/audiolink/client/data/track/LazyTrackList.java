@@ -0,0 +1,71 @@
+package de.mineking.audiolink.client.data.track;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list of encoded tracks that decodes each {@link TrackData} on its first access. Only the offsets of the tracks are computed up front.
+ */
+final class LazyTrackList extends AbstractList<TrackData> implements RandomAccess {
+	private final ByteBuffer data;
+	private final int[] offsets;
+	private final TrackData[] tracks;
+
+	/**
+	 * @param in    the buffer holding the encoded tracks. Its position is advanced to the end of the last track
+	 * @param count the amount of tracks
+	 * @throws IOException if the buffer does not contain the specified amount of tracks
+	 */
+	LazyTrackList(ByteBuffer in, int count) throws IOException {
+		var start = in.position();
+
+		//Not presized from the untrusted count, every track takes at least 21 bytes
+		if(count > in.remaining() / 21) {
+			throw new IOException("Invalid track count: " + count);
+		}
+
+		this.offsets = new int[count];
+		this.tracks = new TrackData[count];
+
+		try {
+			for(int i = 0; i < count; i++) {
+				offsets[i] = in.position() - start;
+				TrackData.skip(in);
+			}
+		} catch(BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("Truncated playlist", e);
+		}
+
+		//Copy the tracks, so that the list does not depend on the source buffer being reused
+		var copy = new byte[in.position() - start];
+		in.get(start, copy);
+
+		this.data = ByteBuffer.wrap(copy).asReadOnlyBuffer();
+	}
+
+	@Override
+	public synchronized TrackData get(int index) {
+		var track = tracks[index];
+
+		if(track == null) {
+			try {
+				track = new TrackData(data.duplicate().position(offsets[index]));
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			tracks[index] = track;
+		}
+
+		return track;
+	}
+
+	@Override
+	public int size() {
+		return offsets.length;
+	}
+}
@@ -1,29 +1,79 @@
 package de.mineking.audiolink.client.data.track;
 
+import de.mineking.audiolink.client.data.BufferReader;
+
 import java.io.DataInputStream;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 public non-sealed class PlaylistData implements TrackCollection {
+	//Only used to presize the list, so that a corrupt count cannot cause a huge allocation
+	private final static int MAX_INITIAL_CAPACITY = 1024;
+
 	public final boolean isSearchResult;
 	public final String name;
 
 	public final List<TrackData> tracks;
 
+	public PlaylistData(boolean isSearchResult, String name, List<TrackData> tracks) {
+		this.isSearchResult = isSearchResult;
+		this.name = name;
+		this.tracks = tracks;
+	}
+
 	public PlaylistData(DataInputStream stream) throws IOException {
 		this.isSearchResult = stream.readBoolean();
 		this.name = stream.readUTF();
 
-		var temp = new LinkedList<TrackData>();
+		var count = readCount(stream.readInt());
+		var temp = new ArrayList<TrackData>(Math.min(count, MAX_INITIAL_CAPACITY));
 
-		for(int i = 0; i < stream.readInt(); i++) {
+		for(int i = 0; i < count; i++) {
 			temp.add(new TrackData(stream));
 		}
 
 		this.tracks = temp;
 	}
 
+	public PlaylistData(ByteBuffer in) throws IOException {
+		this(in, false);
+	}
+
+	/**
+	 * @param in   the buffer to read from. Its position is advanced to the end of the playlist
+	 * @param lazy whether the tracks should only be decoded when they are accessed. In that case, the encoded tracks are copied and kept until they are decoded
+	 * @throws IOException if the data is malformed
+	 */
+	public PlaylistData(ByteBuffer in, boolean lazy) throws IOException {
+		this.isSearchResult = BufferReader.readBoolean(in);
+		this.name = BufferReader.readUTF(in);
+
+		var count = readCount(in.getInt());
+
+		if(lazy) {
+			this.tracks = new LazyTrackList(in, count);
+			return;
+		}
+
+		var temp = new ArrayList<TrackData>(Math.min(count, MAX_INITIAL_CAPACITY));
+
+		for(int i = 0; i < count; i++) {
+			temp.add(new TrackData(in));
+		}
+
+		this.tracks = temp;
+	}
+
+	private static int readCount(int count) throws IOException {
+		if(count < 0) {
+			throw new IOException("Invalid track count: " + count);
+		}
+
+		return count;
+	}
+
 	@Override
 	public List<TrackData> getAllTracks() {
 		return tracks;
@@ -0,0 +1,44 @@
+package de.mineking.audiolink.client.data.track;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A pool for strings that are repeated across many tracks, like authors or artwork hosts. The pool only holds weak references, so a string is removed once no track uses it anymore.
+ * <p>
+ * Only intern strings that are actually shared between tracks. Strings that are unique per track, like titles or ISRCs, would only grow the pool.
+ */
+public final class StringPool {
+	//Guarded by itself
+	private final static Map<String, WeakReference<String>> pool = new WeakHashMap<>();
+
+	private StringPool() {
+	}
+
+	/**
+	 * @param value the string
+	 * @return a canonical instance equal to the string
+	 */
+	public static String intern(String value) {
+		if(value == null) {
+			return null;
+		}
+
+		if(value.isEmpty()) {
+			return "";
+		}
+
+		synchronized(pool) {
+			var reference = pool.get(value);
+			var existing = reference == null ? null : reference.get();
+
+			if(existing != null) {
+				return existing;
+			}
+
+			pool.put(value, new WeakReference<>(value));
+			return value;
+		}
+	}
+}
@@ -1,11 +1,13 @@
 package de.mineking.audiolink.client.data.track;
 
+import de.mineking.audiolink.client.data.BufferReader;
 import de.mineking.audiolink.client.data.URLProvider;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 
@@ -46,7 +48,7 @@ public non-sealed class TrackData implements URLProvider, TrackCollection {
 	public TrackData(DataInputStream in) throws IOException {
 		this.url = in.readUTF();
 		this.title = in.readUTF();
-		this.author = in.readUTF();
+		this.author = StringPool.intern(in.readUTF());
 		this.artworkUrl = in.readUTF();
 		this.length = in.readLong();
 		this.isStream = in.readBoolean();
@@ -54,6 +56,32 @@ public non-sealed class TrackData implements URLProvider, TrackCollection {
 		this.isrc = in.readUTF();
 	}
 
+	public TrackData(ByteBuffer in) throws IOException {
+		this.url = BufferReader.readUTF(in);
+		this.title = BufferReader.readUTF(in);
+		this.author = StringPool.intern(BufferReader.readUTF(in));
+		this.artworkUrl = BufferReader.readUTF(in);
+		this.length = in.getLong();
+		this.isStream = BufferReader.readBoolean(in);
+		this.identifier = BufferReader.readUTF(in);
+		this.isrc = BufferReader.readUTF(in);
+	}
+
+	/**
+	 * Skips an encoded track without decoding it
+	 *
+	 * @param in the buffer to read from
+	 */
+	static void skip(ByteBuffer in) {
+		BufferReader.skipUTF(in);
+		BufferReader.skipUTF(in);
+		BufferReader.skipUTF(in);
+		BufferReader.skipUTF(in);
+		in.position(in.position() + Long.BYTES + 1);
+		BufferReader.skipUTF(in);
+		BufferReader.skipUTF(in);
+	}
+
 	public void write(DataOutputStream out) throws IOException {
 		out.writeUTF(url);
 		out.writeUTF(title);
@@ -74,6 +102,13 @@ public non-sealed class TrackData implements URLProvider, TrackCollection {
 		return baos.toByteArray();
 	}
 
+	/**
+	 * @return a memory-compact copy of this track, intended for long queues
+	 */
+	public CompactTrackData compact() {
+		return new CompactTrackData(this);
+	}
+
 	@Override
 	public String getUrl() {
 		return url;
@@ -0,0 +1,191 @@
+package de.mineking.audiolink.client.main;
+
+import de.mineking.audiolink.client.data.AudioData;
+import de.mineking.audiolink.client.data.TrackLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A registry for short clips that are played frequently, like sound effects. Registered clips are uploaded to every source the client is connected to and to every source a connection is opened to later, so that playing them only references the uploaded data.
+ * <p>
+ * The registry is bounded by the total size of the clips. If it is full, the least recently played clip is removed. Loaders returned by {@link #register(String, AudioData)} keep the data of their clip, so they can still be played after it was removed.
+ * The clip is then uploaded again when it is played.
+ *
+ * @see AudioLinkConfig#setAssetCacheSize(long)
+ * @see TrackLoader#fromAsset(AssetRegistry, String)
+ */
+public class AssetRegistry {
+	private final AudioLinkClient client;
+	private final long maxSize;
+
+	//Guarded by itself
+	private final Map<String, AudioData> assets = new LinkedHashMap<>(16, 0.75f, true);
+	private long size = 0;
+
+	AssetRegistry(AudioLinkClient client, long maxSize) {
+		this.client = client;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Registers a clip and uploads it to all sources that currently have open connections. If a clip with the same name is already registered, it is replaced.
+	 *
+	 * @param name the name of the clip
+	 * @param data the {@link AudioData} of the clip
+	 * @return a {@link TrackLoader} for the clip. It plays the registered clip with that name and falls back to the specified data if the clip was removed
+	 */
+	public TrackLoader register(String name, AudioData data) {
+		synchronized(assets) {
+			var previous = assets.put(name, data);
+
+			if(previous != null) {
+				size -= previous.getSize();
+			}
+
+			size += data.getSize();
+
+			var iterator = assets.entrySet().iterator();
+
+			//Never evict the clip that was just registered
+			while(size > maxSize && assets.size() > 1) {
+				var eldest = iterator.next();
+				size -= eldest.getValue().getSize();
+				iterator.remove();
+			}
+		}
+
+		for(var source : client.config.sources) {
+			if(client.getSocketPool().getSessionCount(source) > 0) {
+				upload(source, name, data);
+			}
+		}
+
+		return new AssetLoader(name, data);
+	}
+
+	/**
+	 * Reads the stream and registers the clip. The stream is not closed.
+	 *
+	 * @param name   the name of the clip
+	 * @param stream the {@link InputStream} containing the audio data
+	 * @return a {@link TrackLoader} for the clip
+	 * @throws IOException if reading the stream fails
+	 * @see #register(String, AudioData)
+	 */
+	public TrackLoader register(String name, InputStream stream) throws IOException {
+		return register(name, AudioData.read(stream));
+	}
+
+	/**
+	 * @param name the name of the clip
+	 * @return the {@link AudioData} of the clip or an empty optional if no clip with that name is registered
+	 */
+	public Optional<AudioData> get(String name) {
+		synchronized(assets) {
+			return Optional.ofNullable(assets.get(name));
+		}
+	}
+
+	/**
+	 * @param name the name of the clip
+	 * @return whether a clip with that name is currently registered. Clips may be removed at any time if the registry is full
+	 */
+	public boolean isRegistered(String name) {
+		synchronized(assets) {
+			return assets.containsKey(name);
+		}
+	}
+
+	/**
+	 * @param name the name of the clip to remove
+	 */
+	public void remove(String name) {
+		synchronized(assets) {
+			var previous = assets.remove(name);
+
+			if(previous != null) {
+				size -= previous.getSize();
+			}
+		}
+	}
+
+	/**
+	 * @return the total size of all registered clips in bytes
+	 */
+	public long getSize() {
+		synchronized(assets) {
+			return size;
+		}
+	}
+
+	/**
+	 * Uploads all registered clips to a source. This is called automatically when a connection to a source is opened.
+	 *
+	 * @param source the {@link AudioLinkSource}
+	 * @return a {@link CompletableFuture} that is completed when all clips were uploaded
+	 */
+	public CompletableFuture<Void> preload(AudioLinkSource source) {
+		Map<String, AudioData> temp;
+
+		synchronized(assets) {
+			if(assets.isEmpty()) {
+				return CompletableFuture.completedFuture(null);
+			}
+
+			//Copy without touching the access order
+			temp = new LinkedHashMap<>(assets);
+		}
+
+		var uploads = new ArrayList<CompletableFuture<?>>();
+		temp.forEach((name, data) -> uploads.add(upload(source, name, data)));
+
+		return CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new));
+	}
+
+	private CompletableFuture<?> upload(AudioLinkSource source, String name, AudioData data) {
+		return source.upload(client, data).exceptionally(e -> {
+			AudioLinkClient.log.warn("Failed to upload asset '{}' to source '{}'", name, source.name, e);
+			return Optional.empty();
+		});
+	}
+
+	private class AssetLoader implements TrackLoader {
+		private final String name;
+		private final AudioData data;
+
+		private AssetLoader(String name, AudioData data) {
+			this.name = name;
+			this.data = data;
+		}
+
+		private TrackLoader resolve() {
+			return TrackLoader.fromData(get(name).orElse(data));
+		}
+
+		@Override
+		public void applyData(Map<String, Object> arguments) throws IOException {
+			resolve().applyData(arguments);
+		}
+
+		@Override
+		public void applyData(AudioLinkSource source, Map<String, Object> arguments) throws IOException {
+			resolve().applyData(source, arguments);
+		}
+
+		@Override
+		public CompletableFuture<Void> applyDataAsync(AudioLinkClient client, AudioLinkSource source, Map<String, Object> arguments) {
+			return resolve().applyDataAsync(client, source, arguments);
+		}
+
+		@Override
+		public void invalidate(AudioLinkSource source) {
+			source.invalidateUpload(get(name).orElse(data));
+		}
+	}
+}
@@ -1,21 +1,26 @@
 package de.mineking.audiolink.client.main;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonParser;
 import de.mineking.audiolink.client.data.track.SearchResult;
+import de.mineking.audiolink.client.data.track.TrackCollection;
+import de.mineking.audiolink.client.data.track.TrackData;
 import de.mineking.audiolink.client.processing.AudioLinkConnection;
+import de.mineking.audiolink.client.processing.SocketPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URLEncoder;
+import java.net.http.HttpClient;
 import java.nio.charset.StandardCharsets;
-import java.util.Comparator;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 public class AudioLinkClient {
@@ -24,11 +29,28 @@ public class AudioLinkClient {
 
 	public final AudioLinkConfig config;
 	public final ScheduledExecutorService executor = Executors.newScheduledThreadPool(0);
+	public final ExecutorService ioExecutor = Executors.newCachedThreadPool();
+	public final HttpClient http;
+
+	private final SocketPool sockets = new SocketPool(this);
+	private final SourceMonitor monitor = new SourceMonitor(this);
+	private final SearchCache searchCache;
+	private final AssetRegistry assets;
 
 	private AudioLinkSource defaultSource;
 
 	public AudioLinkClient(AudioLinkConfig config) {
 		this.config = config;
+		this.http = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.connectTimeout(config.httpConnectTimeout)
+				.executor(ioExecutor)
+				.build();
+
+		this.assets = new AssetRegistry(this, config.assetCacheSize);
+		this.searchCache = config.searchCacheSize > 0 ? new SearchCache(config.searchCacheSize, config.searchCacheTtl) : null;
+
+		monitor.start();
 	}
 
 	public AudioLinkConfig getConfig() {
@@ -36,17 +58,60 @@ public class AudioLinkClient {
 	}
 
 	/**
-	 * @return the configured {@link AudioLinkSource} with the lowest amount of current connections
+	 * @return the {@link SocketPool} that manages the WebSocket connections of this client
+	 */
+	public SocketPool getSocketPool() {
+		return sockets;
+	}
+
+	/**
+	 * @return the {@link SourceMonitor} that keeps track of the status of the configured sources
+	 */
+	public SourceMonitor getSourceMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * @return the {@link SearchCache} of this client or {@code null} if search results are not cached
+	 * @see AudioLinkConfig#setSearchCache(int, java.time.Duration)
+	 */
+	public SearchCache getSearchCache() {
+		return searchCache;
+	}
+
+	/**
+	 * @return the {@link AssetRegistry} of this client
+	 */
+	public AssetRegistry getAssets() {
+		return assets;
+	}
+
+	/**
+	 * @return the {@link AudioLinkSource} selected by the configured {@link SourceSelectionStrategy}
+	 * @implNote This uses the latest snapshot of the {@link SourceMonitor} and only blocks if no snapshot is available yet
 	 */
 	public Optional<AudioLinkSource> findSource() {
-		return config.sources.stream()
-				.map(s -> {
-					var count = s.getConnectionCount();
+		return findSourceAsync(null).join();
+	}
 
-					return count == null ? null : Map.entry(s, count);
-				})
-				.filter(Objects::nonNull)
-				.min(Comparator.comparingInt(Map.Entry::getValue)).map(Map.Entry::getKey);
+	/**
+	 * @return a {@link CompletableFuture} that is completed with the {@link AudioLinkSource} selected by the configured {@link SourceSelectionStrategy}
+	 * @see #findSourceAsync(String)
+	 */
+	public CompletableFuture<Optional<AudioLinkSource>> findSourceAsync() {
+		return findSourceAsync(null);
+	}
+
+	/**
+	 * @param key a key identifying the connection, for example a guild id. This is passed to the {@link SourceSelectionStrategy}. May be {@code null}
+	 * @return a {@link CompletableFuture} that is completed with the {@link AudioLinkSource} selected by the configured {@link SourceSelectionStrategy}
+	 * @implNote This uses the latest snapshot of the {@link SourceMonitor}. The future is only incomplete if no snapshot is available yet
+	 */
+	public CompletableFuture<Optional<AudioLinkSource>> findSourceAsync(String key) {
+		return monitor.getInitialized().thenApply(x -> config.selectionStrategy.select(
+				monitor.getStatus().stream().filter(SourceStatus::available).toList(),
+				new SourceSelectionStrategy.SelectionContext(this, key)
+		));
 	}
 
 	/**
@@ -68,7 +133,44 @@ public class AudioLinkClient {
 	 * @return an optional holding the resulting {@link AudioLinkConnection}. This will return an empty optional if none of the configured sources is available
 	 */
 	public Optional<AudioLinkConnection> connect(String clientInfo) {
-		return findSource().map(source -> new AudioLinkConnection(this, source, clientInfo));
+		return connect(clientInfo, null);
+	}
+
+	/**
+	 * Tries to find a {@link AudioLinkSource} and creates a new {@link AudioLinkConnection} with that source.
+	 *
+	 * @param clientInfo a string identifying this connection. It will be displayed in the server logs
+	 * @param key        a key identifying the connection, for example a guild id. This is passed to the {@link SourceSelectionStrategy}. May be {@code null}
+	 * @return an optional holding the resulting {@link AudioLinkConnection}. This will return an empty optional if none of the configured sources is available
+	 */
+	public Optional<AudioLinkConnection> connect(String clientInfo, String key) {
+		return findSourceAsync(key).join().map(source -> new AudioLinkConnection(this, source, clientInfo));
+	}
+
+	/**
+	 * Tries to find a {@link AudioLinkSource} and creates a new {@link AudioLinkConnection} with that source. This method never blocks the calling thread.
+	 *
+	 * @param clientInfo a string identifying this connection. It will be displayed in the server logs
+	 * @return a {@link CompletableFuture} that is completed with the resulting {@link AudioLinkConnection}. It completes exceptionally with a {@link NoSuchElementException} if none of the configured sources is available
+	 * @see AudioLinkConfig#setMaxConcurrentHandshakes(int)
+	 */
+	public CompletableFuture<AudioLinkConnection> connectAsync(String clientInfo) {
+		return connectAsync(clientInfo, null);
+	}
+
+	/**
+	 * Tries to find a {@link AudioLinkSource} and creates a new {@link AudioLinkConnection} with that source. This method never blocks the calling thread.
+	 *
+	 * @param clientInfo a string identifying this connection. It will be displayed in the server logs
+	 * @param key        a key identifying the connection, for example a guild id. This is passed to the {@link SourceSelectionStrategy}. May be {@code null}
+	 * @return a {@link CompletableFuture} that is completed with the resulting {@link AudioLinkConnection}. It completes exceptionally with a {@link NoSuchElementException} if none of the configured sources is available
+	 * @see AudioLinkConfig#setMaxConcurrentHandshakes(int)
+	 */
+	public CompletableFuture<AudioLinkConnection> connectAsync(String clientInfo, String key) {
+		return findSourceAsync(key).thenCompose(source -> source
+				.map(s -> AudioLinkConnection.connect(this, s, clientInfo))
+				.orElseGet(() -> CompletableFuture.failedFuture(new NoSuchElementException("No source available")))
+		);
 	}
 
 	/**
@@ -80,16 +182,69 @@ public class AudioLinkClient {
 	 * @param error  a {@link Runnable} that is executed when something unexpected happens
 	 */
 	public void searchTrack(AudioLinkSource source, String query, Consumer<SearchResult> result, Runnable error) {
-		try(var reader = new InputStreamReader(source.httpRequest("GET", "track?query=" + URLEncoder.encode(query, StandardCharsets.UTF_8), con -> {}))) {
-			var object = JsonParser.parseReader(reader).getAsJsonObject();
+		SearchResult temp;
 
-			result.accept(AudioLinkClient.gson.fromJson(object,
-					SearchResult.SearchResultType.get(object.get("type").getAsString()).clazz
-			));
+		try {
+			temp = searchTrackAsync(source, query).join();
 		} catch(Exception e) {
 			error.run();
 			AudioLinkClient.log.error("Error searching track", e);
+			return;
+		}
+
+		result.accept(temp);
+	}
+
+	/**
+	 * Search for tracks using the input query without blocking the calling thread.
+	 *
+	 * @param source the {@link AudioLinkSource} to use
+	 * @param query  the query string
+	 * @return a {@link CompletableFuture} that is completed with the {@link SearchResult}
+	 * @implNote If the {@link SearchCache} is enabled, the result may be answered from the cache without making a request to the source
+	 */
+	public CompletableFuture<SearchResult> searchTrackAsync(AudioLinkSource source, String query) {
+		return searchTrackAsync(source, query, null);
+	}
+
+	/**
+	 * Search for tracks using the input query without blocking the calling thread. The tracks of the result are passed to the handler while the response is still being read, so that large playlists can be processed before they are loaded completely.
+	 *
+	 * @param source  the {@link AudioLinkSource} to use
+	 * @param query   the query string
+	 * @param handler a consumer that is called for every {@link TrackData} of the result in order. May be {@code null}
+	 * @return a {@link CompletableFuture} that is completed with the {@link SearchResult} after all tracks were passed to the handler
+	 * @implNote If the {@link SearchCache} is enabled, the result may be answered from the cache without making a request to the source. The handler is still called for every track in that case
+	 */
+	public CompletableFuture<SearchResult> searchTrackAsync(AudioLinkSource source, String query, Consumer<TrackData> handler) {
+		var normalized = SearchCache.normalize(query);
+
+		if(searchCache == null) {
+			return requestSearch(source, normalized, handler);
 		}
+
+		var streamed = new AtomicBoolean();
+
+		return searchCache.get(source, normalized, q -> {
+			streamed.set(true);
+			return requestSearch(source, q, handler);
+		}).thenApply(result -> {
+			if(handler != null && !streamed.get() && result instanceof TrackCollection collection) {
+				collection.getAllTracks().forEach(handler);
+			}
+
+			return result;
+		});
+	}
+
+	private CompletableFuture<SearchResult> requestSearch(AudioLinkSource source, String query, Consumer<TrackData> handler) {
+		return source.httpRequestAsync(this, "GET", "track?query=" + URLEncoder.encode(query, StandardCharsets.UTF_8), req -> {}).thenApply(stream -> {
+			try(var reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+				return SearchResultDecoder.decode(reader, handler);
+			} catch(IOException e) {
+				throw new CompletionException(e);
+			}
+		});
 	}
 
 	/**
@@ -112,9 +267,24 @@ public class AudioLinkClient {
 	}
 
 	/**
-	 * Shuts down this client
+	 * Search for tracks using the input query without blocking the calling thread. This will make a request to the default source.
+	 *
+	 * @param query the query string
+	 * @return a {@link CompletableFuture} that is completed with the {@link SearchResult}. It completes exceptionally with a {@link NoSuchElementException} if none of the configured sources is available
+	 * @see #getDefaultSource()
+	 */
+	public CompletableFuture<SearchResult> searchTrackAsync(String query) {
+		return getDefaultSource()
+				.map(source -> searchTrackAsync(source, query))
+				.orElseGet(() -> CompletableFuture.failedFuture(new NoSuchElementException("No source available")));
+	}
+
+	/**
+	 * Shuts down this client. All sockets are closed before the executors are stopped, and connections do not try to reconnect afterward
 	 */
 	public void shutdown() {
+		sockets.shutdown();
 		executor.shutdownNow();
+		ioExecutor.shutdownNow();
 	}
 }
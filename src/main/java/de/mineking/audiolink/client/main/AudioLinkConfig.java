@@ -1,5 +1,7 @@
 package de.mineking.audiolink.client.main;
 
+import de.mineking.audiolink.client.processing.ConcealmentMode;
+
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
@@ -8,6 +10,39 @@ public class AudioLinkConfig {
 	public final List<AudioLinkSource> sources;
 	public final Duration buffer;
 
+	public Duration minBuffer;
+	public Duration maxBuffer;
+	public Duration bufferCorrectionInterval = Duration.ofSeconds(1);
+
+	public ConcealmentMode concealment = ConcealmentMode.NONE;
+	public Duration maxConcealment = Duration.ofMillis(60);
+
+	public boolean multiplexing = false;
+	public int maxSessionsPerSocket = 250;
+
+	public int maxConcurrentHandshakes = 16;
+
+	public Duration statusInterval = Duration.ofSeconds(10);
+	public SourceSelectionStrategy selectionStrategy = SourceSelectionStrategy.leastConnections();
+
+	public int reconnectAttempts = 0;
+	public Duration reconnectDelay = Duration.ofMillis(500);
+	public Duration maxReconnectDelay = Duration.ofSeconds(30);
+	public boolean reconnectFailover = false;
+
+	public Duration migrationLead = Duration.ofMillis(500);
+	public Duration migrationTimeout = Duration.ofSeconds(30);
+
+	public boolean binaryCommands = false;
+	public Duration commandCoalesceWindow = Duration.ZERO;
+	public Duration requestTimeout = Duration.ofSeconds(10);
+	public Duration positionSyncInterval = Duration.ofSeconds(30);
+	public Duration httpConnectTimeout = Duration.ofSeconds(5);
+	public Duration httpTimeout = Duration.ofSeconds(10);
+	public int searchCacheSize = 0;
+	public Duration searchCacheTtl = Duration.ofMinutes(10);
+	public long assetCacheSize = 64L * 1024 * 1024;
+
 	/**
 	 * @param buffer  the internal buffer of packages to keep. It is important to have some buffer to avoid your internet connection messing with you.
 	 * @param sources the {@link AudioLinkSource}s to use. The client will load balance between these
@@ -15,9 +50,211 @@ public class AudioLinkConfig {
 	public AudioLinkConfig(Duration buffer, List<AudioLinkSource> sources) {
 		this.buffer = buffer;
 		this.sources = sources;
+
+		this.minBuffer = buffer.compareTo(Duration.ofMillis(100)) < 0 ? buffer : Duration.ofMillis(100);
+		this.maxBuffer = buffer.multipliedBy(3);
 	}
 
 	public AudioLinkConfig(Duration buffer, AudioLinkSource... sources) {
 		this(buffer, Arrays.asList(sources));
 	}
+
+	/**
+	 * Configures the range in which the buffer of a connection may be adjusted. Every connection starts with {@link #buffer} and then adapts to the jitter and underruns it measures on its network link.
+	 * Default: 100ms to three times {@link #buffer}
+	 *
+	 * @param min the smallest buffer to use
+	 * @param max the largest buffer to use
+	 * @return this config
+	 */
+	public AudioLinkConfig setBufferBounds(Duration min, Duration max) {
+		if(min.compareTo(max) > 0 || buffer.compareTo(min) < 0 || buffer.compareTo(max) > 0) {
+			throw new IllegalArgumentException("The buffer bounds have to contain the default buffer");
+		}
+
+		this.minBuffer = min;
+		this.maxBuffer = max;
+
+		return this;
+	}
+
+	/**
+	 * @param interval the minimum time between two buffer corrections requested from the server. Default: 1s
+	 * @return this config
+	 */
+	public AudioLinkConfig setBufferCorrectionInterval(Duration interval) {
+		this.bufferCorrectionInterval = interval;
+		return this;
+	}
+
+	/**
+	 * Configures how short underruns of the buffer are concealed. Longer underruns are not concealed and result in no audio being provided.
+	 *
+	 * @param mode the {@link ConcealmentMode}. Default: {@link ConcealmentMode#NONE}
+	 * @param max  the maximum length of an underrun that is concealed. Default: 60ms
+	 * @return this config
+	 */
+	public AudioLinkConfig setConcealment(ConcealmentMode mode, Duration max) {
+		this.concealment = mode;
+		this.maxConcealment = max;
+
+		return this;
+	}
+
+	/**
+	 * Configures whether multiple connections should share the same WebSocket. If this is enabled, the amount of sockets and threads scales with the amount of sources instead of the amount of connections.
+	 * This requires the server to support multiplexed sockets.
+	 *
+	 * @param enabled              whether to enable multiplexing. Default: {@code false}
+	 * @param maxSessionsPerSocket the maximum amount of connections per socket. A new socket is opened when all sockets of a source are full. Default: 250
+	 * @return this config
+	 */
+	public AudioLinkConfig setMultiplexing(boolean enabled, int maxSessionsPerSocket) {
+		this.multiplexing = enabled;
+		this.maxSessionsPerSocket = maxSessionsPerSocket;
+
+		return this;
+	}
+
+	/**
+	 * @param max the maximum amount of WebSocket handshakes that are performed at the same time. Further connections wait until a running handshake is finished. Default: 16
+	 * @return this config
+	 */
+	public AudioLinkConfig setMaxConcurrentHandshakes(int max) {
+		this.maxConcurrentHandshakes = max;
+		return this;
+	}
+
+	/**
+	 * @param interval the interval in which the status of all sources is requested in the background. Default: 10s
+	 * @return this config
+	 * @see SourceMonitor
+	 */
+	public AudioLinkConfig setStatusInterval(Duration interval) {
+		this.statusInterval = interval;
+		return this;
+	}
+
+	/**
+	 * @param strategy the {@link SourceSelectionStrategy} used to choose the source for new connections. Default: {@link SourceSelectionStrategy#leastConnections()}
+	 * @return this config
+	 */
+	public AudioLinkConfig setSelectionStrategy(SourceSelectionStrategy strategy) {
+		this.selectionStrategy = strategy;
+		return this;
+	}
+
+	/**
+	 * Configures automatic reconnection. When a connection is lost, the client tries to re-establish it and restores the tracks, positions, volumes and pause states of all layers.
+	 * Audio that is still buffered keeps being provided while reconnecting. The disconnect listener of a connection is only called if all attempts failed.
+	 *
+	 * @param attempts the maximum amount of attempts. Default: 0, which disables reconnecting
+	 * @param delay    the delay before the first attempt. The delay is doubled for every further attempt and randomized to avoid all connections reconnecting at the same time. Default: 500ms
+	 * @param maxDelay the maximum delay between two attempts. Default: 30s
+	 * @param failover whether attempts after the first one may use a different {@link AudioLinkSource}. Default: {@code false}
+	 * @return this config
+	 */
+	public AudioLinkConfig setReconnect(int attempts, Duration delay, Duration maxDelay, boolean failover) {
+		this.reconnectAttempts = attempts;
+		this.reconnectDelay = delay;
+		this.maxReconnectDelay = maxDelay;
+		this.reconnectFailover = failover;
+
+		return this;
+	}
+
+	/**
+	 * @param lead the additional time a migration target gets to load the track before the playback switches to it. Default: 500ms
+	 * @return this config
+	 * @see de.mineking.audiolink.client.processing.AudioLinkConnection#migrateTo(AudioLinkSource)
+	 */
+	public AudioLinkConfig setMigrationLead(Duration lead) {
+		this.migrationLead = lead;
+		return this;
+	}
+
+	/**
+	 * @param timeout the time a migration may take before it is aborted and the connection stays on its current source. Default: 30s
+	 * @return this config
+	 * @see de.mineking.audiolink.client.processing.AudioLinkConnection#migrateTo(AudioLinkSource)
+	 */
+	public AudioLinkConfig setMigrationTimeout(Duration timeout) {
+		this.migrationTimeout = timeout;
+		return this;
+	}
+
+	/**
+	 * Configures whether the built-in commands should be sent in a compact binary format instead of JSON. This is only used for sources that support it, other sources still receive JSON commands.
+	 *
+	 * @param enabled whether to use binary commands when possible. Default: {@code false}
+	 * @return this config
+	 */
+	public AudioLinkConfig setBinaryCommands(boolean enabled) {
+		this.binaryCommands = enabled;
+		return this;
+	}
+
+	/**
+	 * Configures command coalescing. Volume, seek and pause commands are collected for the specified window and only the last command of each type per layer is sent.
+	 * All collected commands are sent in a single batch if the source supports it. Any other command sends the collected commands immediately.
+	 *
+	 * @param window the time to collect commands. Default: {@link Duration#ZERO}, which disables coalescing
+	 * @return this config
+	 */
+	public AudioLinkConfig setCommandCoalesceWindow(Duration window) {
+		this.commandCoalesceWindow = window;
+		return this;
+	}
+
+	/**
+	 * @param timeout the time to wait for the response to a request before it fails. Default: 10s
+	 * @return this config
+	 * @see de.mineking.audiolink.client.processing.AudioLinkConnection#request(String, java.util.Map)
+	 */
+	public AudioLinkConfig setRequestTimeout(Duration timeout) {
+		this.requestTimeout = timeout;
+		return this;
+	}
+
+	/**
+	 * @param interval the interval in which the locally calculated track positions are corrected with the position reported by the server. Default: 30s. Use {@link Duration#ZERO} to disable this
+	 * @return this config
+	 * @see de.mineking.audiolink.client.processing.AudioLinkConnection#getPosition(de.mineking.audiolink.client.data.PlayerLayer)
+	 */
+	public AudioLinkConfig setPositionSyncInterval(Duration interval) {
+		this.positionSyncInterval = interval;
+		return this;
+	}
+
+	/**
+	 * @param connect the maximum time to wait for a http connection to a source to be established. Default: 5s
+	 * @param request the maximum time to wait for the response of a http request. Default: 10s
+	 * @return this config
+	 */
+	public AudioLinkConfig setHttpTimeouts(Duration connect, Duration request) {
+		this.httpConnectTimeout = connect;
+		this.httpTimeout = request;
+		return this;
+	}
+
+	/**
+	 * @param maxEntries the maximum amount of search results to cache. If the cache is full, the least recently used result is removed. Default: 0 (disabled)
+	 * @param ttl        the duration after which a cached result expires. Default: 10min
+	 * @return this config
+	 * @see de.mineking.audiolink.client.main.AudioLinkClient#getSearchCache()
+	 */
+	public AudioLinkConfig setSearchCache(int maxEntries, Duration ttl) {
+		this.searchCacheSize = maxEntries;
+		this.searchCacheTtl = ttl;
+		return this;
+	}
+
+	/**
+	 * @param bytes the maximum total size of the clips in the {@link de.mineking.audiolink.client.main.AssetRegistry}. If it is exceeded, the least recently played clips are removed. Default: 64MiB
+	 * @return this config
+	 */
+	public AudioLinkConfig setAssetCacheSize(long bytes) {
+		this.assetCacheSize = bytes;
+		return this;
+	}
 }
@@ -1,12 +1,26 @@
 package de.mineking.audiolink.client.main;
 
+import de.mineking.audiolink.client.data.AudioData;
 import de.mineking.audiolink.client.main.response.ConnectionResponse;
+import de.mineking.audiolink.client.main.response.SupportsCommandResponse;
+import de.mineking.audiolink.client.main.response.UploadResponse;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 public class AudioLinkSource {
@@ -16,6 +30,14 @@ public class AudioLinkSource {
 	public final int port;
 	public final String password;
 
+	//Used for requests that are not made on behalf of an AudioLinkClient
+	private final static Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+
+	//Content hash -> upload id
+	private final Map<String, CompletableFuture<Optional<String>>> uploads = new ConcurrentHashMap<>();
+	//Command name -> whether this source supports it
+	private final Map<String, CompletableFuture<Boolean>> capabilities = new ConcurrentHashMap<>();
+
 	public AudioLinkSource(String name, String host, boolean https, int port, String password) {
 		this.name = name;
 		this.host = host;
@@ -39,11 +61,24 @@ public class AudioLinkSource {
 	 * @return The amount of connections this source is currently handling or {@code null} if this source is not currently available
 	 */
 	public Integer getConnectionCount() {
-		try {
-			return httpRequest("GET", "connection", con -> {}, ConnectionResponse.class).count();
-		} catch(Exception e) {
-			return null;
-		}
+		return getConnectionCountAsync().join();
+	}
+
+	/**
+	 * @return a {@link CompletableFuture} that is completed with the amount of connections this source is currently handling or {@code null} if this source is not currently available
+	 */
+	public CompletableFuture<Integer> getConnectionCountAsync() {
+		return getConnectionCountAsync(null);
+	}
+
+	/**
+	 * @param client the {@link AudioLinkClient} whose http client and timeouts are used or {@code null} to use a shared default client
+	 * @return a {@link CompletableFuture} that is completed with the amount of connections this source is currently handling or {@code null} if this source is not currently available
+	 */
+	public CompletableFuture<Integer> getConnectionCountAsync(AudioLinkClient client) {
+		return httpRequestAsync(client, "GET", "connection", req -> {}, ConnectionResponse.class)
+				.thenApply(ConnectionResponse::count)
+				.exceptionally(e -> null);
 	}
 
 	/**
@@ -54,46 +89,284 @@ public class AudioLinkSource {
 	}
 
 	/**
-	 * Performs a http request.
+	 * @param command the name of the command to check
+	 * @return whether this source supports the specified command
+	 * @throws IOException if something went wrong
+	 */
+	public boolean supportsCommand(String command) throws IOException {
+		return join(supportsCommandAsync(command));
+	}
+
+	/**
+	 * @param command the name of the command to check
+	 * @return a {@link CompletableFuture} that is completed with whether this source supports the specified command
+	 */
+	public CompletableFuture<Boolean> supportsCommandAsync(String command) {
+		return supportsCommandAsync(null, command);
+	}
+
+	/**
+	 * @param client  the {@link AudioLinkClient} whose http client and timeouts are used or {@code null} to use a shared default client
+	 * @param command the name of the command to check
+	 * @return a {@link CompletableFuture} that is completed with whether this source supports the specified command
+	 */
+	public CompletableFuture<Boolean> supportsCommandAsync(AudioLinkClient client, String command) {
+		return httpRequestAsync(client, "GET", "supports?command=" + command, req -> {}, SupportsCommandResponse.class).thenApply(SupportsCommandResponse::supports);
+	}
+
+	/**
+	 * Checks whether this source supports a command. The source is only asked once per command, all later calls share the cached result. Checks that failed are not cached and resolve to {@code false}.
+	 *
+	 * @param client  the {@link AudioLinkClient} whose http client and timeouts are used or {@code null} to use a shared default client
+	 * @param command the name of the command to check
+	 * @return a {@link CompletableFuture} that is completed with whether this source supports the specified command
+	 */
+	public CompletableFuture<Boolean> getCapability(AudioLinkClient client, String command) {
+		var future = new CompletableFuture<Boolean>();
+		var existing = capabilities.putIfAbsent(command, future);
+
+		if(existing != null) {
+			return existing;
+		}
+
+		supportsCommandAsync(client, command).whenComplete((supported, error) -> {
+			if(error != null) {
+				capabilities.remove(command, future);
+				future.complete(false);
+			}
+
+			else {
+				future.complete(supported);
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * @param command the name of the command to check
+	 * @return whether this source is known to support the specified command. This never makes a request, so it is {@code false} until the result of {@link #getCapability(AudioLinkClient, String)} is available
+	 */
+	public boolean hasCapability(String command) {
+		var future = capabilities.get(command);
+		return future != null && future.getNow(false);
+	}
+
+	/**
+	 * Uploads audio data to this source, so that it can be played by its id. Data with the same content is only uploaded once, concurrent uploads of the same data share a single request.
+	 *
+	 * @param data the {@link AudioData} to upload
+	 * @return a {@link CompletableFuture} that is completed with the upload id or an empty optional if this source does not support uploads
+	 */
+	public CompletableFuture<Optional<String>> upload(AudioData data) {
+		return upload(null, data);
+	}
+
+	/**
+	 * Uploads audio data to this source, so that it can be played by its id. Data with the same content is only uploaded once, concurrent uploads of the same data share a single request.
+	 *
+	 * @param client the {@link AudioLinkClient} whose http client and timeouts are used or {@code null} to use a shared default client
+	 * @param data   the {@link AudioData} to upload
+	 * @return a {@link CompletableFuture} that is completed with the upload id or an empty optional if this source does not support uploads
+	 */
+	public CompletableFuture<Optional<String>> upload(AudioLinkClient client, AudioData data) {
+		var future = new CompletableFuture<Optional<String>>();
+		var existing = uploads.putIfAbsent(data.getHash(), future);
+
+		if(existing != null) {
+			return existing;
+		}
+
+		getCapability(client, "upload").thenCompose(supported -> !supported
+				? CompletableFuture.completedFuture(Optional.<String>empty())
+				: httpRequestAsync(client, "POST", "upload", req -> req
+						.header("Content-Type", "application/octet-stream")
+						.header("Content-Hash", data.getHash())
+						.POST(HttpRequest.BodyPublishers.ofByteArrays(data.getChunks())), UploadResponse.class
+				).thenApply(response -> Optional.of(response.id()))
+		).whenComplete((id, error) -> {
+			if(error != null) {
+				//Allow retrying failed uploads
+				uploads.remove(data.getHash(), future);
+				future.completeExceptionally(error);
+			}
+
+			else {
+				future.complete(id);
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * Forgets the id of uploaded data, so that the next {@link #upload(AudioLinkClient, AudioData)} uploads it again. This is used when this source no longer knows the id, for example after it was restarted.
+	 *
+	 * @param data the {@link AudioData} that was uploaded
+	 */
+	public void invalidateUpload(AudioData data) {
+		uploads.remove(data.getHash());
+	}
+
+	/**
+	 * Performs a http request. The request uses the shared default http client and blocks the calling thread until the response is available.
 	 *
 	 * @param method    the http method
 	 * @param path      the http path
-	 * @param finalizer a consumer to make some custom configuration for that request
+	 * @param finalizer a consumer to make some custom configuration for that request. The request itself is made with the shared http client, so only the request method and the request properties of the connection are used
 	 * @return the {@link InputStream} of the result
-	 * @throws IOException if the request fails
+	 * @throws IOException if the request fails or the server responded with an error status
+	 * @deprecated use {@link #httpRequestAsync(AudioLinkClient, String, String, Consumer)}, which does not block and allows configuring the request completely
 	 */
+	@Deprecated
 	public InputStream httpRequest(String method, String path, Consumer<HttpURLConnection> finalizer) throws IOException {
+		//The connection is never opened, it only collects the configuration of the finalizer
 		var connection = (HttpURLConnection) getURI("http", path).toURL().openConnection();
-
 		connection.setRequestMethod(method);
-		connection.setRequestProperty("Authorization", password);
 
 		finalizer.accept(connection);
 
-		connection.connect();
+		return join(httpRequestAsync(null, connection.getRequestMethod(), path, req -> connection.getRequestProperties().forEach((name, values) -> req.setHeader(name, String.join(", ", values)))));
+	}
 
-		return connection.getInputStream();
+	/**
+	 * Performs a http request without blocking the calling thread.
+	 *
+	 * @param method    the http method
+	 * @param path      the http path
+	 * @param finalizer a consumer to make some custom configuration for that request
+	 * @return a {@link CompletableFuture} that is completed with the {@link InputStream} of the result. The caller is responsible for closing it. It completes exceptionally with an {@link IOException} if the request fails or the server responded with an error status
+	 */
+	public CompletableFuture<InputStream> httpRequestAsync(String method, String path, Consumer<HttpRequest.Builder> finalizer) {
+		return httpRequestAsync(null, method, path, finalizer);
 	}
 
 	/**
-	 * Performs a http request.
+	 * Performs a http request without blocking the calling thread.
 	 *
+	 * @param client    the {@link AudioLinkClient} whose http client and timeouts are used or {@code null} to use a shared default client
 	 * @param method    the http method
 	 * @param path      the http path
 	 * @param finalizer a consumer to make some custom configuration for that request
+	 * @return a {@link CompletableFuture} that is completed with the {@link InputStream} of the result. The caller is responsible for closing it. It completes exceptionally with an {@link IOException} if the request fails or the server responded with an error status
+	 */
+	public CompletableFuture<InputStream> httpRequestAsync(AudioLinkClient client, String method, String path, Consumer<HttpRequest.Builder> finalizer) {
+		try {
+			var http = client == null ? DefaultHttp.INSTANCE : client.http;
+			var timeout = client == null ? DEFAULT_TIMEOUT : client.config.httpTimeout;
+
+			return http.sendAsync(buildRequest(method, path, timeout, finalizer), HttpResponse.BodyHandlers.ofInputStream()).thenApply(response -> {
+				try {
+					return checkResponse(response);
+				} catch(IOException e) {
+					throw new CompletionException(e);
+				}
+			});
+		} catch(Exception e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/**
+	 * Performs a http request. The request uses the shared default http client and blocks the calling thread until the response is available.
+	 *
+	 * @param method    the http method
+	 * @param path      the http path
+	 * @param finalizer a consumer to make some custom configuration for that request. The request itself is made with the shared http client, so only the request method and the request properties of the connection are used
 	 * @param type      the {@link Class} of the result type
 	 * @param <T>       the result type
 	 * @return the result
-	 * @throws IOException if the request fails
+	 * @throws IOException if the request fails or the server responded with an error status
+	 * @deprecated use {@link #httpRequestAsync(AudioLinkClient, String, String, Consumer, Class)}, which does not block and allows configuring the request completely
 	 */
+	@Deprecated
 	public <T> T httpRequest(String method, String path, Consumer<HttpURLConnection> finalizer, Class<T> type) throws IOException {
-		try(var reader = new InputStreamReader(httpRequest(method, path, finalizer))) {
+		try(var reader = new InputStreamReader(httpRequest(method, path, finalizer), StandardCharsets.UTF_8)) {
 			return AudioLinkClient.gson.fromJson(reader, type);
 		}
 	}
 
+	/**
+	 * Performs a http request without blocking the calling thread.
+	 *
+	 * @param method    the http method
+	 * @param path      the http path
+	 * @param finalizer a consumer to make some custom configuration for that request
+	 * @param type      the {@link Class} of the result type
+	 * @param <T>       the result type
+	 * @return a {@link CompletableFuture} that is completed with the result
+	 */
+	public <T> CompletableFuture<T> httpRequestAsync(String method, String path, Consumer<HttpRequest.Builder> finalizer, Class<T> type) {
+		return httpRequestAsync(null, method, path, finalizer, type);
+	}
+
+	/**
+	 * Performs a http request without blocking the calling thread.
+	 *
+	 * @param client    the {@link AudioLinkClient} whose http client and timeouts are used or {@code null} to use a shared default client
+	 * @param method    the http method
+	 * @param path      the http path
+	 * @param finalizer a consumer to make some custom configuration for that request
+	 * @param type      the {@link Class} of the result type
+	 * @param <T>       the result type
+	 * @return a {@link CompletableFuture} that is completed with the result
+	 */
+	public <T> CompletableFuture<T> httpRequestAsync(AudioLinkClient client, String method, String path, Consumer<HttpRequest.Builder> finalizer, Class<T> type) {
+		return httpRequestAsync(client, method, path, finalizer).thenApply(stream -> {
+			try(var reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+				return AudioLinkClient.gson.fromJson(reader, type);
+			} catch(IOException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+
+	private static <T> T join(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.join();
+		} catch(CompletionException e) {
+			throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+		}
+	}
+
+	//Only created when a source is used without an AudioLinkClient
+	private static class DefaultHttp {
+		private final static HttpClient INSTANCE = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+	}
+
+	private HttpRequest buildRequest(String method, String path, Duration timeout, Consumer<HttpRequest.Builder> finalizer) {
+		var builder = HttpRequest.newBuilder(getURI("http", path))
+				.method(method, HttpRequest.BodyPublishers.noBody())
+				.timeout(timeout);
+
+		if(password != null) {
+			builder.header("Authorization", password);
+		}
+
+		finalizer.accept(builder);
+
+		return builder.build();
+	}
+
+	private static InputStream checkResponse(HttpResponse<InputStream> response) throws IOException {
+		if(response.statusCode() / 100 == 2) {
+			return response.body();
+		}
+
+		//Read the error body completely, so that the underlying connection can be reused
+		try(var body = response.body()) {
+			var message = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+			throw new IOException("Request to '" + response.uri() + "' failed with status " + response.statusCode() + (message.isBlank() ? "" : ": " + message));
+		}
+	}
+
 	@Override
 	public boolean equals(Object obj) {
-		return obj instanceof AudioLinkSource other && other.name.equals(name) && other.host.equals(host) && other.port == port;
+		return obj instanceof AudioLinkSource other && Objects.equals(other.name, name) && other.host.equals(host) && other.port == port;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(name, host, port);
 	}
 }
@@ -0,0 +1,197 @@
+package de.mineking.audiolink.client.main;
+
+import de.mineking.audiolink.client.data.track.PlaylistData;
+import de.mineking.audiolink.client.data.track.SearchResult;
+import de.mineking.audiolink.client.data.track.TrackData;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory cache for {@link SearchResult}s. Entries are evicted after the configured time to live or when the cache is full, in which case the least recently used entry is removed.
+ * <p>
+ * Results are cached per source, because sources may resolve the same query differently. Concurrent searches for the same query on the same source share a single request. Failed searches are never cached.
+ * Every caller receives its own copy of the result, so modifying the tracks or the track list of a result does not affect later searches.
+ *
+ * @see AudioLinkConfig#setSearchCache(int, Duration)
+ */
+public class SearchCache {
+	private final static Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private final int maxEntries;
+	private final long ttl;
+
+	//Guarded by itself
+	private final Map<Key, Entry> entries;
+	private final Map<Key, CompletableFuture<SearchResult>> pending = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	private record Key(AudioLinkSource source, String query) {
+	}
+
+	private record Entry(SearchResult result, long expires) {
+	}
+
+	SearchCache(int maxEntries, Duration ttl) {
+		this.maxEntries = maxEntries;
+		this.ttl = ttl.toNanos();
+
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				return size() > SearchCache.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @param query the search query
+	 * @return the query in the form that is used as cache key
+	 */
+	static String normalize(String query) {
+		return WHITESPACE.matcher(query.strip()).replaceAll(" ");
+	}
+
+	/**
+	 * @param source the {@link AudioLinkSource} the search is made with
+	 * @param query  the normalized search query
+	 * @param loader the function to load the result if it is not cached
+	 * @return a {@link CompletableFuture} that is completed with the cached or loaded result
+	 */
+	CompletableFuture<SearchResult> get(AudioLinkSource source, String query, Function<String, CompletableFuture<SearchResult>> loader) {
+		var key = new Key(source, query);
+		Entry entry;
+
+		synchronized(entries) {
+			entry = entries.get(key);
+
+			if(entry != null && entry.expires - System.nanoTime() <= 0) {
+				entries.remove(key);
+				entry = null;
+			}
+		}
+
+		if(entry != null) {
+			hits.increment();
+			return CompletableFuture.completedFuture(copy(entry.result));
+		}
+
+		var future = new CompletableFuture<SearchResult>();
+		var existing = pending.putIfAbsent(key, future);
+
+		if(existing != null) {
+			hits.increment();
+			return existing.thenApply(SearchCache::copy);
+		}
+
+		misses.increment();
+
+		loader.apply(query).whenComplete((result, error) -> {
+			if(error == null && !(result instanceof SearchResult.FailedResponse)) {
+				synchronized(entries) {
+					entries.put(key, new Entry(copy(result), System.nanoTime() + ttl));
+				}
+			}
+
+			pending.remove(key);
+
+			if(error != null) {
+				future.completeExceptionally(error);
+			}
+
+			else {
+				future.complete(result);
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * @param result the {@link SearchResult}
+	 * @return a copy of the result with copies of all tracks. Results without tracks are immutable and returned as they are
+	 */
+	private static SearchResult copy(SearchResult result) {
+		if(result instanceof TrackData track) {
+			return new TrackData(track);
+		}
+
+		if(result instanceof PlaylistData playlist) {
+			var tracks = new ArrayList<TrackData>(playlist.tracks.size());
+
+			for(var track : playlist.tracks) {
+				tracks.add(new TrackData(track));
+			}
+
+			return new PlaylistData(playlist.isSearchResult, playlist.name, tracks);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Removes the cached results of a query for all sources
+	 *
+	 * @param query the search query
+	 */
+	public void invalidate(String query) {
+		var normalized = normalize(query);
+
+		synchronized(entries) {
+			entries.keySet().removeIf(key -> key.query.equals(normalized));
+		}
+	}
+
+	/**
+	 * Removes the cached result of a query for a single source
+	 *
+	 * @param source the {@link AudioLinkSource}
+	 * @param query  the search query
+	 */
+	public void invalidate(AudioLinkSource source, String query) {
+		synchronized(entries) {
+			entries.remove(new Key(source, normalize(query)));
+		}
+	}
+
+	/**
+	 * Removes all cached results
+	 */
+	public void clear() {
+		synchronized(entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * @return the amount of cached results. This may include expired entries that were not evicted yet
+	 */
+	public int size() {
+		synchronized(entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return the amount of searches that were answered from the cache or by joining a running request
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the amount of searches that required a request to a source
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+}
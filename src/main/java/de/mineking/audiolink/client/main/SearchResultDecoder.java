@@ -0,0 +1,107 @@
+package de.mineking.audiolink.client.main;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import de.mineking.audiolink.client.data.track.PlaylistData;
+import de.mineking.audiolink.client.data.track.SearchResult;
+import de.mineking.audiolink.client.data.track.StringPool;
+import de.mineking.audiolink.client.data.track.TrackData;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Decodes the response of a search request while it is read. The tracks of a playlist are bound one by one, so that no intermediate tree of the whole response is built.
+ */
+final class SearchResultDecoder {
+	private SearchResultDecoder() {
+	}
+
+	/**
+	 * @param input   the response body
+	 * @param handler a consumer that is called for every track of the result as soon as it was decoded. May be {@code null}
+	 * @return the decoded {@link SearchResult}
+	 * @throws IOException if the response could not be read or is malformed
+	 */
+	static SearchResult decode(Reader input, Consumer<TrackData> handler) throws IOException {
+		try(var reader = new JsonReader(input)) {
+			String type = null;
+			ArrayList<TrackData> tracks = null;
+
+			//All other properties are small, so they are collected and bound once the type is known
+			var properties = new JsonObject();
+
+			reader.beginObject();
+
+			while(reader.hasNext()) {
+				var name = reader.nextName();
+
+				switch(name) {
+					case "type" -> type = reader.nextString();
+					case "tracks" -> {
+						tracks = new ArrayList<>();
+						reader.beginArray();
+
+						while(reader.hasNext()) {
+							TrackData track = intern(AudioLinkClient.gson.fromJson(reader, TrackData.class));
+							tracks.add(track);
+
+							if(handler != null) {
+								handler.accept(track);
+							}
+						}
+
+						reader.endArray();
+					}
+					default -> properties.add(name, JsonParser.parseReader(reader));
+				}
+			}
+
+			reader.endObject();
+
+			var resultType = type == null ? null : SearchResult.SearchResultType.get(type);
+
+			if(resultType == null) {
+				throw new IOException("Unknown search result type: " + type);
+			}
+
+			return switch(resultType) {
+				case PLAYLIST -> new PlaylistData(
+						properties.has("isSearchResult") && properties.get("isSearchResult").getAsBoolean(),
+						properties.has("name") ? properties.get("name").getAsString() : null,
+						tracks == null ? new ArrayList<>() : tracks
+				);
+				case TRACK -> {
+					var track = intern(AudioLinkClient.gson.fromJson(properties, TrackData.class));
+
+					if(handler != null) {
+						handler.accept(track);
+					}
+
+					yield track;
+				}
+				default -> AudioLinkClient.gson.fromJson(properties, resultType.clazz);
+			};
+		} catch(JsonParseException | IllegalStateException e) {
+			throw new IOException("Malformed search result", e);
+		}
+	}
+
+	/**
+	 * Shares the author of the track with other tracks, because results of the same artist repeat it many times
+	 *
+	 * @param track the track
+	 * @return the same track
+	 */
+	private static TrackData intern(TrackData track) {
+		if(track != null) {
+			track.author = StringPool.intern(track.author);
+		}
+
+		return track;
+	}
+}
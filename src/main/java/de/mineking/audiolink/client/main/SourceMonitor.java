@@ -0,0 +1,87 @@
+package de.mineking.audiolink.client.main;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically polls the status of all configured sources in the background. The latest results are kept in an in-memory snapshot, so that choosing a source does not require any network request.
+ *
+ * @see AudioLinkConfig#setStatusInterval(Duration)
+ */
+public class SourceMonitor {
+	private final AudioLinkClient client;
+	private final CompletableFuture<Void> initialized = new CompletableFuture<>();
+
+	private volatile Map<AudioLinkSource, SourceStatus> snapshot = Map.of();
+
+	SourceMonitor(AudioLinkClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * Starts polling the sources. The next poll is scheduled when the previous one finished, so that slow sources never cause overlapping polls.
+	 */
+	void start() {
+		refresh().whenComplete((x, e) -> {
+			if(!client.executor.isShutdown()) {
+				client.executor.schedule(this::start, client.config.statusInterval.toMillis(), TimeUnit.MILLISECONDS);
+			}
+		});
+	}
+
+	/**
+	 * Requests the status of all sources concurrently and updates the snapshot once all requests are finished
+	 *
+	 * @return a {@link CompletableFuture} that is completed when the snapshot was updated
+	 */
+	public CompletableFuture<Void> refresh() {
+		var requests = client.config.sources.stream()
+				.map(source -> {
+					var start = System.nanoTime();
+
+					return source.getConnectionCountAsync(client).thenApply(count ->
+							new SourceStatus(source, count != null, count == null ? 0 : count, Duration.ofNanos(System.nanoTime() - start), Instant.now())
+					);
+				})
+				.toList();
+
+		return CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).thenRun(() -> {
+			var temp = new LinkedHashMap<AudioLinkSource, SourceStatus>();
+
+			for(var request : requests) {
+				var status = request.join();
+				temp.put(status.source(), status);
+			}
+
+			snapshot = temp;
+			initialized.complete(null);
+		});
+	}
+
+	/**
+	 * @return a {@link CompletableFuture} that is completed once the first snapshot is available
+	 */
+	public CompletableFuture<Void> getInitialized() {
+		return initialized;
+	}
+
+	/**
+	 * @return the latest status of all sources. This is empty until the first snapshot is available
+	 */
+	public Collection<SourceStatus> getStatus() {
+		return snapshot.values();
+	}
+
+	/**
+	 * @param source the {@link AudioLinkSource}
+	 * @return the latest status of the source or {@code null} if there is no status for that source yet
+	 */
+	public SourceStatus getStatus(AudioLinkSource source) {
+		return snapshot.get(source);
+	}
+}
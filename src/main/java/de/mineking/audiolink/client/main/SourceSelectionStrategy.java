@@ -0,0 +1,157 @@
+package de.mineking.audiolink.client.main;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which {@link AudioLinkSource} a new connection is opened with.
+ *
+ * @see AudioLinkConfig#setSelectionStrategy(SourceSelectionStrategy)
+ */
+@FunctionalInterface
+public interface SourceSelectionStrategy {
+	/**
+	 * Information about the connection that a source is selected for
+	 *
+	 * @param client the {@link AudioLinkClient} that opens the connection
+	 * @param key    a key identifying the connection, for example a guild id, or {@code null} if no key was specified
+	 */
+	record SelectionContext(AudioLinkClient client, String key) {
+		/**
+		 * @param status the {@link SourceStatus} of a source
+		 * @return the amount of connections the source reported plus the amount of connections that this client opened since the status was requested
+		 */
+		public int getLoad(SourceStatus status) {
+			return status.connections() + client.getSocketPool().getSessionsOpenedSince(status.source(), status.timestamp());
+		}
+	}
+
+	/**
+	 * Selects a source
+	 *
+	 * @param candidates the {@link SourceStatus} of all available sources
+	 * @param context    the {@link SelectionContext}
+	 * @return the selected source or an empty optional if none of the candidates should be used
+	 */
+	Optional<AudioLinkSource> select(List<SourceStatus> candidates, SelectionContext context);
+
+	/**
+	 * @return a strategy that selects the source with the lowest load. This is the default strategy
+	 * @see SelectionContext#getLoad(SourceStatus)
+	 */
+	static SourceSelectionStrategy leastConnections() {
+		return (candidates, context) -> candidates.stream()
+				.min(Comparator.comparingInt(context::getLoad))
+				.map(SourceStatus::source);
+	}
+
+	/**
+	 * @return a strategy that selects the source with the lowest amount of connections that were opened by this client.
+	 * Connections that are still being established are counted as well, so that this reacts to bursts immediately
+	 */
+	static SourceSelectionStrategy leastLocalConnections() {
+		return (candidates, context) -> candidates.stream()
+				.min(Comparator.comparingInt(s -> context.client().getSocketPool().getSessionCount(s.source())))
+				.map(SourceStatus::source);
+	}
+
+	/**
+	 * @return a strategy that picks two random sources and selects the one with the lower load. This avoids that all clients starting at the same time choose the same source. Ties are broken randomly
+	 * @see SelectionContext#getLoad(SourceStatus)
+	 */
+	static SourceSelectionStrategy powerOfTwoChoices() {
+		return (candidates, context) -> {
+			if(candidates.isEmpty()) {
+				return Optional.empty();
+			}
+
+			if(candidates.size() == 1) {
+				return Optional.of(candidates.get(0).source());
+			}
+
+			var random = ThreadLocalRandom.current();
+
+			//Both sources are picked in random order, so that the comparison below breaks ties randomly
+			var first = random.nextInt(candidates.size());
+			var second = random.nextInt(candidates.size() - 1);
+
+			if(second >= first) {
+				second++;
+			}
+
+			var a = candidates.get(first);
+			var b = candidates.get(second);
+
+			return Optional.of(context.getLoad(a) <= context.getLoad(b) ? a.source() : b.source());
+		};
+	}
+
+	/**
+	 * @return a strategy that selects a random source, weighted by the inverse of its measured latency. Sources that respond faster receive more connections
+	 */
+	static SourceSelectionStrategy latencyWeighted() {
+		return (candidates, context) -> {
+			if(candidates.isEmpty()) {
+				return Optional.empty();
+			}
+
+			var weights = new double[candidates.size()];
+			var total = 0.0;
+
+			for(int i = 0; i < weights.length; i++) {
+				weights[i] = 1.0 / Math.max(1, candidates.get(i).latency().toMillis());
+				total += weights[i];
+			}
+
+			var value = ThreadLocalRandom.current().nextDouble(total);
+
+			for(int i = 0; i < weights.length; i++) {
+				value -= weights[i];
+
+				if(value < 0) {
+					return Optional.of(candidates.get(i).source());
+				}
+			}
+
+			return Optional.of(candidates.get(candidates.size() - 1).source());
+		};
+	}
+
+	/**
+	 * Creates a strategy that always selects the same source for the same key as long as that source is available. This uses rendezvous hashing, so only the keys of a source that becomes unavailable move to other sources.
+	 *
+	 * @param fallback the strategy to use for connections without a key
+	 * @return the resulting strategy
+	 * @see SelectionContext#key()
+	 */
+	static SourceSelectionStrategy consistentHashing(SourceSelectionStrategy fallback) {
+		return (candidates, context) -> {
+			if(context.key() == null) {
+				return fallback.select(candidates, context);
+			}
+
+			return candidates.stream()
+					.max(Comparator.comparingLong(s -> hash(context.key(), s.source())))
+					.map(SourceStatus::source);
+		};
+	}
+
+	private static long hash(String key, AudioLinkSource source) {
+		//FNV-1a over key and source, followed by a 64-bit finalizer to spread the bits
+		var hash = 0xcbf29ce484222325L;
+
+		for(var b : (key + "@" + source.host + ":" + source.port).getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b;
+			hash *= 0x100000001b3L;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+
+		return hash;
+	}
+}
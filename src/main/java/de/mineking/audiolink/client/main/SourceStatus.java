@@ -0,0 +1,16 @@
+package de.mineking.audiolink.client.main;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A snapshot of the state of an {@link AudioLinkSource}
+ *
+ * @param source      the {@link AudioLinkSource}
+ * @param available   whether the source responded to the last status request
+ * @param connections the amount of connections the source reported. This is {@code 0} if the source is not available
+ * @param latency     the time it took the source to respond to the last status request
+ * @param timestamp   the time of the last status request
+ */
+public record SourceStatus(AudioLinkSource source, boolean available, int connections, Duration latency, Instant timestamp) {
+}
@@ -0,0 +1,4 @@
+package de.mineking.audiolink.client.main.response;
+
+public record UploadResponse(String id) {
+}
@@ -0,0 +1,153 @@
+package de.mineking.audiolink.client.processing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A single-producer/single-consumer ring buffer of PCM frames. All slots are allocated up front, so neither writing nor reading a frame allocates memory.
+ * <p>
+ * Exactly one thread (the WebSocket thread) may call the writing methods and exactly one thread (the audio send thread) may call the reading methods.
+ */
+public class AudioFrameBuffer {
+	/**
+	 * The size of a 20ms frame of 48kHz 16-bit stereo PCM audio
+	 */
+	public final static int FRAME_SIZE = 3840;
+
+	private final byte[][] slots;
+	private final int[] lengths;
+	private final int mask;
+
+	//Only written by the consumer
+	private volatile long head = 0;
+	//Only written by the producer
+	private volatile long tail = 0;
+
+	/**
+	 * @param frames the minimal amount of frames this buffer should be able to hold. The actual capacity is rounded up to the next power of two
+	 */
+	public AudioFrameBuffer(int frames) {
+		var capacity = Integer.highestOneBit(Math.max(frames, 2) - 1) << 1;
+
+		this.slots = new byte[capacity][FRAME_SIZE];
+		this.lengths = new int[capacity];
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * @return the maximum amount of frames this buffer can hold
+	 */
+	public int capacity() {
+		return slots.length;
+	}
+
+	/**
+	 * @return the amount of frames that are currently buffered
+	 */
+	public int size() {
+		return (int) (tail - head);
+	}
+
+	/**
+	 * Appends a frame to this buffer. An empty frame represents silence. May only be called from the producer thread.
+	 *
+	 * @param data   the array holding the frame
+	 * @param offset the offset of the frame in the array
+	 * @param length the length of the frame
+	 * @return {@code false} if the buffer is full and the frame was dropped
+	 */
+	public boolean write(byte[] data, int offset, int length) {
+		var t = tail;
+
+		if(t - head >= slots.length) {
+			return false;
+		}
+
+		var index = (int) t & mask;
+
+		//Frames are fixed-size in practice, so this only allocates if the server uses a different format
+		if(slots[index].length < length) {
+			slots[index] = new byte[length];
+		}
+
+		System.arraycopy(data, offset, slots[index], 0, length);
+		lengths[index] = length;
+
+		tail = t + 1;
+		return true;
+	}
+
+	/**
+	 * Appends the remaining content of the buffer as a frame. An empty buffer represents silence. May only be called from the producer thread.
+	 *
+	 * @param data the buffer holding the frame. Its position is advanced to its limit
+	 * @return {@code false} if the buffer is full and the frame was dropped
+	 */
+	public boolean write(ByteBuffer data) {
+		var t = tail;
+
+		if(t - head >= slots.length) {
+			return false;
+		}
+
+		var index = (int) t & mask;
+		var length = data.remaining();
+
+		if(slots[index].length < length) {
+			slots[index] = new byte[length];
+		}
+
+		data.get(slots[index], 0, length);
+		lengths[index] = length;
+
+		tail = t + 1;
+		return true;
+	}
+
+	/**
+	 * May only be called from the consumer thread.
+	 *
+	 * @return the length of the next frame or {@code -1} if the buffer is empty
+	 */
+	public int peekLength() {
+		var h = head;
+		return h == tail ? -1 : lengths[(int) h & mask];
+	}
+
+	/**
+	 * Removes the next frame and copies it into the target array. May only be called from the consumer thread.
+	 *
+	 * @param target the array to copy the frame into. It has to be at least {@link #peekLength()} bytes long
+	 * @return the length of the frame or {@code -1} if the buffer is empty
+	 */
+	public int read(byte[] target) {
+		var h = head;
+
+		if(h == tail) {
+			return -1;
+		}
+
+		var index = (int) h & mask;
+		var length = lengths[index];
+
+		System.arraycopy(slots[index], 0, target, 0, length);
+
+		head = h + 1;
+		return length;
+	}
+
+	/**
+	 * Removes the next frame without reading it. May only be called from the consumer thread.
+	 *
+	 * @return whether there was a frame to remove
+	 */
+	public boolean skip() {
+		var h = head;
+
+		if(h == tail) {
+			return false;
+		}
+
+		head = h + 1;
+		return true;
+	}
+}
@@ -1,5 +1,6 @@
 package de.mineking.audiolink.client.processing;
 
+import de.mineking.audiolink.client.data.BufferReader;
 import de.mineking.audiolink.client.data.CommandData;
 import de.mineking.audiolink.client.data.PlayerLayer;
 import de.mineking.audiolink.client.data.TrackLoader;
@@ -9,56 +10,146 @@ import de.mineking.audiolink.client.data.track.MarkerState;
 import de.mineking.audiolink.client.data.track.TrackData;
 import de.mineking.audiolink.client.main.AudioLinkClient;
 import de.mineking.audiolink.client.main.AudioLinkSource;
-import de.mineking.audiolink.client.main.response.SupportsCommandResponse;
-import org.java_websocket.client.WebSocketClient;
-import org.java_websocket.exceptions.WebsocketNotConnectedException;
-import org.java_websocket.handshake.ServerHandshake;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
-public class AudioLinkConnection extends WebSocketClient {
-	private final AudioLinkSource source;
+public class AudioLinkConnection implements FrameProvider {
 	private final AudioLinkClient client;
-	private final long bufferDuration;
+	private final String clientInfo;
 
-	private boolean started = false;
-	private boolean shutdown = false;
+	private volatile AudioLinkSource source;
+	private volatile AudioLinkSession session;
+	//The session whose buffer is currently played. This differs from the current session while the buffer of an old session is drained
+	private volatile AudioLinkSession playback;
 
-	private int provideCounter = 0;
+	//The session a running migration switches to and the frame number the first frame of its buffer belongs to
+	private volatile AudioLinkSession migrationTarget;
+	//Switching to the migration target and aborting the migration race for clearing the target, so that only one of them takes place
+	private final static AtomicReferenceFieldUpdater<AudioLinkConnection, AudioLinkSession> MIGRATION_TARGET = AtomicReferenceFieldUpdater.newUpdater(AudioLinkConnection.class, AudioLinkSession.class, "migrationTarget");
+	private volatile long migrationFrame;
+	private CompletableFuture<Void> migration;
+	//The session that was opened for the running migration. Unlike migrationTarget, this is kept after the switch until the migration finished
+	private AudioLinkSession migrationSession;
 
-	private final Queue<byte[]> buffer = new LinkedList<>();
+	//Events of the migration target are deferred until the cut over. Guarded by itself, which also serializes the event handling of all sessions
+	private final Deque<DeferredEvent> deferredEvents = new ArrayDeque<>();
+	//Layers whose first track start event of the migration target only confirms the restored track
+	private final Set<PlayerLayer> migrationRestored = ConcurrentHashMap.newKeySet();
+	//Events that were already emitted by the old session while a migration is running, so that the same events of the target are not emitted twice
+	private final Map<String, Integer> migrationEmitted = new ConcurrentHashMap<>();
+
+	private record DeferredEvent(AudioLinkSession session, ByteBuffer data) {
+	}
+
+	//Events that are emitted once the frame they belong to is provided, in order. Guarded by deferredEvents
+	private final Deque<ScheduledEvent> scheduledEvents = new ArrayDeque<>();
+	//The frame the first scheduled event is due at, so that the audio send thread does not need the lock
+	private volatile long scheduledFrame = Long.MAX_VALUE;
+	private final AtomicBoolean emitting = new AtomicBoolean();
+
+	private record ScheduledEvent(long frame, PlayerLayer layer, ListenerHandler handler) {
+	}
+
+	private volatile boolean started = false;
+	private volatile boolean shutdown = false;
+	private volatile long providedFrames = 0;
+
+	private byte[] frame = new byte[AudioFrameBuffer.FRAME_SIZE];
+	private ByteBuffer frameView = ByteBuffer.wrap(frame).asReadOnlyBuffer();
+	private int frameLength = 0;
+	private FrameState frameState = FrameState.UNDERRUN;
+
+	private final int maxConcealment;
+	private byte[] concealmentFrame = new byte[0];
+	private final GainStage gain = new GainStage();
+	private int concealed = 0;
+
+	private final CommandQueue commands;
+
+	private final Map<PlayerLayer, PlayerState> players = new EnumMap<>(PlayerLayer.class);
+	private final Set<PlayerLayer> restoring = ConcurrentHashMap.newKeySet();
 
 	private final Map<PlayerLayer, Set<AudioEventListener>> listeners = new ConcurrentHashMap<>();
 	private Runnable disconnectListener;
-	private CompletableFuture<Optional<CurrentTrackData>> currentTrack;
-
-	public AudioLinkConnection(AudioLinkClient client, AudioLinkSource source, String clientInfo) {
-		super(source.getURI("ws", "gateway"));
+	private final PendingRequests requests;
+	private final ScheduledFuture<?> positionSync;
 
+	private AudioLinkConnection(AudioLinkClient client, AudioLinkSource source, String clientInfo, boolean connect) {
 		this.source = source;
 		this.client = client;
-		this.bufferDuration = client.config.buffer.toMillis() / 20;
+		this.clientInfo = clientInfo;
+		this.maxConcealment = (int) (client.config.maxConcealment.toMillis() / 20);
+		this.requests = new PendingRequests(client.executor, client.config.requestTimeout);
+		this.positionSync = client.config.positionSyncInterval.isZero() ? null : client.executor.scheduleAtFixedRate(this::syncPositions,
+				client.config.positionSyncInterval.toMillis(), client.config.positionSyncInterval.toMillis(), TimeUnit.MILLISECONDS
+		);
+		this.commands = client.config.commandCoalesceWindow.isZero() ? null : new CommandQueue(client.executor, client.config.commandCoalesceWindow, this::dispatch);
 
-		try {
-			connectBlocking();
-		} catch(InterruptedException e) {
-			throw new RuntimeException(e);
+		for(var layer : PlayerLayer.values()) {
+			if(layer != PlayerLayer.ALL) {
+				players.put(layer, new PlayerState());
+			}
+		}
+
+		if(connect) {
+			this.session = client.getSocketPool().openSession(source, this, clientInfo).join();
 		}
+	}
+
+	/**
+	 * Creates a new connection and waits until it is established.
+	 *
+	 * @param client     the {@link AudioLinkClient}
+	 * @param source     the {@link AudioLinkSource} to connect to
+	 * @param clientInfo a string identifying this connection. It will be displayed in the server logs
+	 * @see #connect(AudioLinkClient, AudioLinkSource, String)
+	 */
+	public AudioLinkConnection(AudioLinkClient client, AudioLinkSource source, String clientInfo) {
+		this(client, source, clientInfo, true);
+	}
+
+	/**
+	 * Creates a new connection without blocking the current thread.
+	 *
+	 * @param client     the {@link AudioLinkClient}
+	 * @param source     the {@link AudioLinkSource} to connect to
+	 * @param clientInfo a string identifying this connection. It will be displayed in the server logs
+	 * @return a {@link CompletableFuture} that is completed with the connection once it is established
+	 */
+	public static CompletableFuture<AudioLinkConnection> connect(AudioLinkClient client, AudioLinkSource source, String clientInfo) {
+		var connection = new AudioLinkConnection(client, source, clientInfo, false);
 
-		send(AudioLinkClient.gson.toJson(new ClientConfiguration(source.password, clientInfo)));
-		AudioLinkClient.log.info("Connected to source '{}'", source.getURI("ws", "gateway"));
+		return client.getSocketPool().openSession(source, connection, clientInfo).thenApply(session -> {
+			connection.session = session;
+			return connection;
+		});
 	}
 
 	public record ClientConfiguration(String password, String clientInfo) {
 	}
 
+	/**
+	 * @return the {@link AudioLinkClient} that created this connection
+	 */
+	public AudioLinkClient getClient() {
+		return client;
+	}
+
 	/**
 	 * @return the {@link AudioLinkSource} that manages this connection
 	 */
@@ -72,73 +163,232 @@ public class AudioLinkConnection extends WebSocketClient {
 	 * @throws IOException if something went wrong
 	 */
 	public boolean supportsCommand(String command) throws IOException {
-		return source.httpRequest("GET", "supports?command=" + command, con -> {}, SupportsCommandResponse.class).supports();
+		try {
+			return source.supportsCommandAsync(client, command).join();
+		} catch(CompletionException e) {
+			throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+		}
 	}
 
-	@Override
-	public void onMessage(ByteBuffer input) {
-		var reader = new DataInputStream(new ByteArrayInputStream(input.array()));
+	/**
+	 * Handles a non-audio message of a session. This is called from the read thread of the socket.
+	 *
+	 * @param session the session that received the message
+	 * @param type    the message type
+	 * @param input   the message content
+	 * @throws IOException if the message could not be decoded
+	 */
+	void handleMessage(AudioLinkSession session, byte type, ByteBuffer input) throws IOException {
+		synchronized(deferredEvents) {
+			if(type == 1 && session == migrationTarget) {
+				deferEvent(session, input);
+				return;
+			}
 
-		try {
-			switch(reader.readByte()) {
-				case 0 -> {
-					var data = reader.readAllBytes();
+			if(session != this.session && session != migrationTarget) {
+				return;
+			}
 
-					if(data.length == 0) {
-						this.buffer.add(null);
-					}
+			if(type == 1) {
+				replayDeferredEvents();
 
-					else {
-						this.buffer.add(data);
-					}
+				if(migrationTarget != null) {
+					//Remember the events of the old session, the target emits the same events for the same tracks
+					migrationEmitted.merge(input.get(input.position() + 1) + ":" + input.get(input.position()), 1, Integer::sum);
 				}
+			}
 
-				case 1 -> {
-					var type = reader.readByte();
-					var layer = PlayerLayer.get(reader.readByte());
+			handleMessage0(session, type, input);
+		}
+	}
 
-					switch(type) {
-						case 0 -> {
-							var track = new TrackData(reader);
-							callListener(layer, listener -> listener.onTrackStart(track));
+	/**
+	 * Defers an event of the migration target until the playback switched to it. The track start event of the layer the target is anchored on is used to align its buffer.
+	 *
+	 * @param session the migration target
+	 * @param input   the event
+	 */
+	private void deferEvent(AudioLinkSession session, ByteBuffer input) {
+		var event = input.get(input.position());
+		var layer = PlayerLayer.get(input.get(input.position() + 1));
+
+		if(event == 0 && migrationRestored.remove(layer)) {
+			//The first frame of the restored track is the next received frame, which is played at migrationFrame
+			if(session.anchor == layer) {
+				session.anchor = null;
+			}
+
+			return;
+		}
+
+		deferredEvents.add(new DeferredEvent(session, copy(input)));
+	}
+
+	/**
+	 * Handles the deferred events of the migration target once it is the current session. Events the old session already emitted are skipped
+	 */
+	private void replayDeferredEvents() {
+		synchronized(deferredEvents) {
+			while(!deferredEvents.isEmpty() && deferredEvents.peek().session == session) {
+				var deferred = deferredEvents.poll();
+				var key = deferred.data.get(1) + ":" + deferred.data.get(0);
+
+				if(migrationEmitted.containsKey(key)) {
+					migrationEmitted.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+					continue;
+				}
+
+				try {
+					handleMessage0(deferred.session, (byte) 1, deferred.data);
+				} catch(Exception e) {
+					AudioLinkClient.log.error("Exception", e);
+				}
+			}
+
+			//Events of a target that was discarded
+			deferredEvents.removeIf(deferred -> deferred.session != migrationTarget);
+		}
+	}
+
+	private void handleMessage0(AudioLinkSession session, byte type, ByteBuffer input) throws IOException {
+		switch(type) {
+			case 1 -> {
+				var event = input.get();
+				var layer = PlayerLayer.get(input.get());
+
+				switch(event) {
+					case 0 -> {
+						var track = new TrackData(input);
+						getPlayer(layer).started(track, getNextFrame());
+
+						if(session.anchor == layer) {
+							session.anchor = null;
 						}
-						case 1 -> {
-							var reason = AudioTrackEndReason.get(reader.readByte());
-							callListener(layer, listener -> listener.onTrackEnd(reason));
+
+						//The track was restarted after reconnecting, so the listeners already know about it
+						if(!restoring.remove(layer)) {
+							emitAt(0, layer, listener -> listener.onTrackStart(track));
 						}
-						case 2 -> callListener(layer, AudioEventListener::onTrackStuck);
-						case 3 -> {
-							var message = reader.readUTF();
-							callListener(layer, listener -> listener.onTrackException(message));
+					}
+					case 1 -> {
+						var reason = AudioTrackEndReason.get(input.get());
+						var player = getPlayer(layer);
+
+						//The source may have lost the uploaded data, for example after a restart. Upload it again instead of reporting the failure
+						if(reason == AudioTrackEndReason.LOAD_FAILED && player.retryUpload()) {
+							retryUpload(session, layer, player);
+							return;
 						}
-						case 4 -> {
-							var state = MarkerState.get(reader.readByte());
-							var track = new CurrentTrackData(reader);
-							callListener(layer, listener -> listener.onTrackMarker(state, track));
+
+						//The frame at which the end of the track is audible. This is only used for transitions to a queued track
+						var frame = 0L;
+
+						if(reason != null && reason.mayStartNext) {
+							var transition = getNextFrame();
+							var next = player.next(transition);
+
+							if(next != null) {
+								frame = transition;
+							}
+
+							//The source already started the queued track if it supports queueing
+							if(next != null && !next.sent()) {
+								var params = new HashMap<>(next.params());
+
+								reapply(session.socket.source, params, next.loader()).whenComplete((x, e) -> {
+									if(e != null) {
+										AudioLinkClient.log.error("Failed to play queued track on layer {}", layer, e);
+									}
+
+									else {
+										playerRequest(layer, "play", params);
+									}
+								});
+							}
 						}
+
+						else if(reason != AudioTrackEndReason.REPLACED) {
+							player.stop();
+						}
+
+						emitAt(frame, layer, listener -> listener.onTrackEnd(reason));
 					}
-				}
+					case 2 -> emitAt(0, layer, AudioEventListener::onTrackStuck);
+					case 3 -> {
+						var message = BufferReader.readUTF(input);
+						emitAt(0, layer, listener -> listener.onTrackException(message));
+					}
+					case 4 -> {
+						var state = MarkerState.get(input.get());
+						var track = new CurrentTrackData(input);
 
-				case 2 -> {
-					if(currentTrack != null) {
-						currentTrack.complete(
-								input.capacity() == 1
-										? Optional.empty()
-										: Optional.of(new CurrentTrackData(reader))
-						);
-						currentTrack = null;
+						getPlayer(layer).sync(track.position, getNextFrame());
+						emitAt(0, layer, listener -> listener.onTrackMarker(state, track));
 					}
 				}
 			}
-		} catch(Exception e) {
-			AudioLinkClient.log.error("Exception", e);
+
+			//Response of a server without correlation ids. These are always responses to 'current' and such servers only report the primary layer
+			case 2 -> requests.completeOldest("current", PlayerLayer.PRIMARY, copy(input));
+			case 3 -> {
+				var id = input.getInt();
+				requests.complete(id, copy(input));
+			}
 		}
 	}
 
+	private static ByteBuffer copy(ByteBuffer input) {
+		var result = ByteBuffer.allocate(input.remaining());
+		result.put(input).flip();
+
+		return result;
+	}
+
 	private interface ListenerHandler {
 		void handle(AudioEventListener listener) throws IOException;
 	}
 
+	/**
+	 * Calls the listeners once the specified frame was provided. Events are always emitted in order, so an event is also delayed while an earlier event is still scheduled.
+	 * This has to be called while holding the lock of {@link #deferredEvents}.
+	 *
+	 * @param frame   the frame number the event belongs to or {@code 0} to emit it as soon as possible
+	 * @param layer   the {@link PlayerLayer} of the event
+	 * @param handler the handler that calls a listener
+	 */
+	private void emitAt(long frame, PlayerLayer layer, ListenerHandler handler) throws IOException {
+		if(scheduledEvents.isEmpty() && frame <= providedFrames) {
+			callListener(layer, handler);
+			return;
+		}
+
+		var last = scheduledEvents.peekLast();
+		scheduledEvents.add(new ScheduledEvent(last == null ? frame : Math.max(frame, last.frame), layer, handler));
+
+		scheduledFrame = scheduledEvents.peek().frame;
+	}
+
+	/**
+	 * Emits all scheduled events whose frame was provided. This is executed on the executor of the client, so that listeners are never called from the audio send thread
+	 */
+	private void emitScheduledEvents() {
+		emitting.set(false);
+
+		synchronized(deferredEvents) {
+			while(!scheduledEvents.isEmpty() && scheduledEvents.peek().frame <= providedFrames) {
+				var event = scheduledEvents.poll();
+
+				try {
+					callListener(event.layer, event.handler);
+				} catch(Exception e) {
+					AudioLinkClient.log.error("Exception", e);
+				}
+			}
+
+			scheduledFrame = scheduledEvents.isEmpty() ? Long.MAX_VALUE : scheduledEvents.peek().frame;
+		}
+	}
+
 	private void callListener(PlayerLayer layer, ListenerHandler handler) throws IOException {
 		if(layer == PlayerLayer.ALL) {
 			for(var listeners : this.listeners.values()) {
@@ -169,12 +419,36 @@ public class AudioLinkConnection extends WebSocketClient {
 
 		AudioLinkClient.log.info("Disconnected Client with Server '{}'", source.host + ":" + source.port);
 
+		if(commands != null) {
+			commands.flush();
+		}
+
 		shutdown = true;
-		close();
+		session.close();
+
+		release();
 	}
 
 	/**
-	 * Sets the new disconnect listener that will be called when the connection os closed abnormally
+	 * Fails all pending requests and stops the periodic tasks of this connection
+	 */
+	private void release() {
+		requests.failAll(new IOException("Connection closed"));
+
+		if(positionSync != null) {
+			positionSync.cancel(false);
+		}
+	}
+
+	/**
+	 * @return whether this connection is still open
+	 */
+	public boolean isOpen() {
+		return !shutdown && session.socket.isOpen();
+	}
+
+	/**
+	 * Sets the new disconnect listener that will be called when the connection os closed abnormally. If reconnecting is enabled, this is only called when all attempts to reconnect failed.
 	 *
 	 * @param listener the new listener
 	 */
@@ -217,12 +491,90 @@ public class AudioLinkConnection extends WebSocketClient {
 	 * @param args    the parameter map
 	 */
 	public void socketRequest(String command, Map<String, Object> args) {
-		try {
-			send(AudioLinkClient.gson.toJson(new CommandData(command, args)));
-		} catch(WebsocketNotConnectedException ignore) {
+		if(commands != null) {
+			commands.submit(command, args);
+			return;
+		}
+
+		session.send(command, args);
+
+		//Keep the target of a running migration in sync
+		var target = migrationTarget;
+		if(target != null) {
+			mirror(target, command, args);
 		}
 	}
 
+	private void dispatch(List<CommandData> commands) {
+		session.send(commands);
+
+		var target = migrationTarget;
+		if(target != null) {
+			if(commands.stream().noneMatch(c -> c.args.containsKey("upload"))) {
+				target.send(commands);
+			}
+
+			else {
+				commands.forEach(c -> mirror(target, c.command, c.args));
+			}
+		}
+	}
+
+	/**
+	 * Sends a command to the target of a running migration. Upload ids only exist on the source the data was uploaded to, so commands referencing one are sent once the data was uploaded to the target.
+	 * Such commands are dropped if they do not belong to a track of a layer.
+	 *
+	 * @param target  the migration target
+	 * @param command the name of the command
+	 * @param args    the parameter map
+	 */
+	private void mirror(AudioLinkSession target, String command, Map<String, Object> args) {
+		if(!args.containsKey("upload")) {
+			target.send(command, args);
+			return;
+		}
+
+		var loader = args.get("layer") instanceof Byte id ? getSourceBoundLoader(PlayerLayer.get(id), command) : null;
+
+		if(loader == null) {
+			return;
+		}
+
+		var params = new HashMap<>(args);
+
+		reapply(target.socket.source, params, loader).whenComplete((x, e) -> {
+			if(e != null) {
+				AudioLinkClient.log.error("Failed to upload track data to migration target", e);
+			}
+
+			else if(migrationTarget == target) {
+				target.send(command, params);
+			}
+		});
+	}
+
+	/**
+	 * @param layer   the {@link PlayerLayer} of the command
+	 * @param command the name of the command
+	 * @return the {@link TrackLoader} that created the parameters of a play or queue command or {@code null} if it is unknown
+	 */
+	private TrackLoader getSourceBoundLoader(PlayerLayer layer, String command) {
+		if(layer == null || layer == PlayerLayer.ALL) {
+			return null;
+		}
+
+		var player = getPlayer(layer);
+
+		return switch(command) {
+			case "play" -> player.getLoader();
+			case "queue" -> {
+				var queued = player.getQueued();
+				yield queued == null ? null : queued.loader();
+			}
+			default -> null;
+		};
+	}
+
 	/**
 	 * Execute a command without parameters. For default commands, use the dedicated methods!
 	 *
@@ -242,18 +594,46 @@ public class AudioLinkConnection extends WebSocketClient {
 	 * @see #socketRequest(String, Map)
 	 */
 	private void playerRequest(PlayerLayer layer, String cmd, Map<String, Object> params) {
+		socketRequest(cmd, playerParams(layer, params));
+	}
+
+	private static Map<String, Object> playerParams(PlayerLayer layer, Map<String, Object> params) {
+		params = new HashMap<>(params);
+		params.put("layer", resolve(layer).id);
+
+		return params;
+	}
+
+	private static PlayerLayer resolve(PlayerLayer layer) {
 		if(layer == null) {
-			layer = PlayerLayer.PRIMARY;
+			return PlayerLayer.PRIMARY;
 		}
 
 		if(layer == PlayerLayer.ALL) {
 			throw new IllegalArgumentException();
 		}
 
-		params = new HashMap<>(params);
-		params.put("layer", layer.id);
+		return layer;
+	}
 
-		socketRequest(cmd, params);
+	private PlayerState getPlayer(PlayerLayer layer) {
+		return players.get(resolve(layer));
+	}
+
+	/**
+	 * @return the number of the frame that will be provided after all currently buffered frames
+	 */
+	private long getNextFrame() {
+		var current = session;
+		var buffered = current == null ? 0 : current.buffer.size();
+
+		//While an old buffer is drained, its remaining frames are played before the frames of the current session
+		var drained = playback;
+		if(drained != null && drained != current) {
+			buffered += drained.buffer.size();
+		}
+
+		return providedFrames + buffered;
 	}
 
 	/**
@@ -263,20 +643,27 @@ public class AudioLinkConnection extends WebSocketClient {
 	 * @param loader   the {@link TrackLoader} for the track you want to load
 	 * @param position the starting position. Default: 0
 	 * @param marker   the marker position. Default: none
+	 * @return a {@link CompletableFuture} that is completed once the play command was sent. If the {@link TrackLoader} has to upload data first, this happens in the background and the calling thread is not blocked.
+	 * Commands for the layer that are executed before the future completed still apply to the previous track
 	 */
-	public void playTrack(PlayerLayer layer, TrackLoader loader, Duration position, Duration marker) {
+	public CompletableFuture<Void> playTrack(PlayerLayer layer, TrackLoader loader, Duration position, Duration marker) {
 		var params = new HashMap<String, Object>();
 
 		params.put("position", position == null ? 0 : position.toMillis());
 		params.put("marker", marker == null ? -1 : marker.toMillis());
 
-		try {
-			loader.applyData(params);
+		var player = getPlayer(layer);
+		var request = player.requestPlay();
 
-			playerRequest(layer, "play", params);
-		} catch(IOException e) {
-			throw new RuntimeException(e);
-		}
+		return loader.applyDataAsync(client, source, params).thenRun(() -> {
+			if(player.play(request, params, loader, getNextFrame())) {
+				playerRequest(layer, "play", params);
+			}
+		}).whenComplete((x, e) -> {
+			if(e != null) {
+				AudioLinkClient.log.error("Failed to play track on layer {}", layer, e);
+			}
+		});
 	}
 
 	/**
@@ -284,9 +671,83 @@ public class AudioLinkConnection extends WebSocketClient {
 	 *
 	 * @param layer  the targeted {@link PlayerLayer}
 	 * @param loader the {@link TrackLoader} for the track you want to load
+	 * @return a {@link CompletableFuture} that is completed once the play command was sent
+	 * @see #playTrack(PlayerLayer, TrackLoader, Duration, Duration)
+	 */
+	public CompletableFuture<Void> playTrack(PlayerLayer layer, TrackLoader loader) {
+		return playTrack(layer, loader, null, null);
+	}
+
+	/**
+	 * Sets the gain that is applied to the provided audio on the client. Unlike {@link #setVolume(int)}, this takes effect with the next provided frame instead of after the buffered audio was played.
+	 *
+	 * @param gain the new gain. {@code 1} keeps the original volume, {@code 0} mutes the audio
+	 * @throws IllegalArgumentException if the gain is negative or not finite
+	 * @see #fadeTo(float, Duration, FadeCurve)
+	 */
+	public void setGain(float gain) {
+		fadeTo(gain, Duration.ZERO, FadeCurve.LINEAR);
+	}
+
+	/**
+	 * Changes the gain that is applied to the provided audio on the client over the specified duration. The gain is ramped sample by sample, starting with the next provided frame.
+	 *
+	 * @param gain     the target gain. {@code 1} keeps the original volume, {@code 0} mutes the audio
+	 * @param duration the duration of the fade. At most 12 hours
+	 * @param curve    the {@link FadeCurve} of the fade
+	 * @throws IllegalArgumentException if the gain is negative or not finite or the duration is negative or too long
+	 */
+	public void fadeTo(float gain, Duration duration, FadeCurve curve) {
+		//Also rejects NaN, which would otherwise propagate into every following sample
+		if(!(gain >= 0) || Float.isInfinite(gain)) {
+			throw new IllegalArgumentException("The gain has to be a finite, non-negative number");
+		}
+
+		if(duration.isNegative() || duration.compareTo(GainStage.MAX_FADE) > 0) {
+			throw new IllegalArgumentException("The fade duration has to be between 0 and " + GainStage.MAX_FADE.toHours() + " hours");
+		}
+
+		this.gain.fadeTo(gain, (int) (duration.toNanos() * 48 / 1_000_000), curve);
+	}
+
+	/**
+	 * @return the gain that is applied to the provided audio on the client after the current fade finished
 	 */
-	public void playTrack(PlayerLayer layer, TrackLoader loader) {
-		playTrack(layer, loader, null, null);
+	public float getGain() {
+		return gain.getTarget();
+	}
+
+	/**
+	 * Queue a track to be played after the current track on the layer finished. If the source supports it, the track is loaded in advance and the playback continues without a gap.
+	 * Otherwise, the track is played as soon as the current track finished.
+	 * <p>
+	 * The {@link AudioEventListener#onTrackEnd(AudioTrackEndReason)} and {@link AudioEventListener#onTrackStart(TrackData)} events of the transition are emitted once the last frame of the previous track was provided, instead of when the source reports the transition ahead of the buffered audio.
+	 * Events that the source reports afterward are delayed until then as well, so that all events stay in order. Queueing another track replaces the previously queued one.
+	 *
+	 * @param layer  the targeted {@link PlayerLayer}
+	 * @param loader the {@link TrackLoader} of the next track
+	 * @return a {@link CompletableFuture} that is completed once the track was queued. This does not block the calling thread, so it can be called from event listeners
+	 */
+	public CompletableFuture<Void> queueNext(PlayerLayer layer, TrackLoader loader) {
+		var params = new HashMap<String, Object>();
+
+		params.put("position", 0L);
+		params.put("marker", -1L);
+
+		return loader.applyDataAsync(client, source, params).thenRun(() -> {
+			var current = session;
+			var sent = current != null && current.socket.supportsQueue();
+
+			getPlayer(layer).queue(params, loader, sent);
+
+			if(sent) {
+				playerRequest(layer, "queue", params);
+			}
+		}).whenComplete((x, e) -> {
+			if(e != null) {
+				AudioLinkClient.log.error("Failed to queue track on layer {}", layer, e);
+			}
+		});
 	}
 
 	/**
@@ -295,6 +756,7 @@ public class AudioLinkConnection extends WebSocketClient {
 	 * @param layer the targeted {@link PlayerLayer}
 	 */
 	public void stopTrack(PlayerLayer layer) {
+		getPlayer(layer).stop();
 		playerRequest(layer, "stop", new HashMap<>());
 	}
 
@@ -305,6 +767,7 @@ public class AudioLinkConnection extends WebSocketClient {
 	 * @param state the new state
 	 */
 	public void setPaused(PlayerLayer layer, boolean state) {
+		getPlayer(layer).pause(state, getNextFrame());
 		playerRequest(layer, "pause", Map.of("state", state));
 	}
 
@@ -315,6 +778,7 @@ public class AudioLinkConnection extends WebSocketClient {
 	 * @param volume the new volume
 	 */
 	public void setVolume(PlayerLayer layer, int volume) {
+		getPlayer(layer).volume(volume);
 		playerRequest(layer, "volume", Map.of("volume", volume));
 	}
 
@@ -325,50 +789,340 @@ public class AudioLinkConnection extends WebSocketClient {
 	 * @param position the new position in the track
 	 */
 	public void seek(PlayerLayer layer, Duration position) {
+		getPlayer(layer).seek(position == null ? 0 : position.toMillis(), getNextFrame());
 		playerRequest(layer, "seek", Map.of("position", position == null ? 0 : position.toMillis()));
 	}
 
+	/**
+	 * Execute a command and wait for the response of the server. The command is sent with a {@code requestId} parameter that the server has to send back with the response.
+	 *
+	 * @param command the name of the command
+	 * @param args    the parameter map
+	 * @return a {@link CompletableFuture} that is completed with the content of the response. It completes exceptionally with a {@link java.util.concurrent.TimeoutException} if there was no response in time
+	 * @see de.mineking.audiolink.client.main.AudioLinkConfig#setRequestTimeout(Duration)
+	 */
+	public CompletableFuture<ByteBuffer> request(String command, Map<String, Object> args) {
+		var future = new CompletableFuture<ByteBuffer>();
+
+		//Commands without a layer target the primary layer
+		var layer = args.get("layer") instanceof Byte id ? PlayerLayer.get(id) : PlayerLayer.PRIMARY;
+
+		args = new HashMap<>(args);
+		args.put("requestId", requests.register(command, layer, future));
+
+		socketRequest(command, args);
+		return future;
+	}
+
 	/**
 	 * @return A {@link CompletableFuture} managing this request
-	 * @apiNote You can only request this once at a time. If you make multiple calls on this method before the client receives a result, no new request is made, and instead this will return the same future as the last calls!
+	 * @apiNote Multiple requests can be made at the same time. Every call gets its own response
 	 */
 	public CompletableFuture<Optional<CurrentTrackData>> getCurrentTrack() {
-		if(currentTrack == null) {
-			currentTrack = new CompletableFuture<>();
-			socketRequest("current");
+		return request("current", Collections.emptyMap()).thenApply(AudioLinkConnection::readCurrentTrack);
+	}
+
+	/**
+	 * @param layer the targeted {@link PlayerLayer}
+	 * @return A {@link CompletableFuture} managing this request
+	 * @apiNote Multiple requests can be made at the same time. Every call gets its own response
+	 */
+	public CompletableFuture<Optional<CurrentTrackData>> getCurrentTrack(PlayerLayer layer) {
+		return request("current", playerParams(layer, Collections.emptyMap())).thenApply(AudioLinkConnection::readCurrentTrack);
+	}
+
+	/**
+	 * @param layer the targeted {@link PlayerLayer}
+	 * @return the position of the track that is currently audible on the layer. This is calculated locally from the provided frames and does not make a request to the server
+	 * @implNote The position is based on the start, seek and pause commands and the track events of the layer. It is corrected with the position reported by the server in the configured interval
+	 * @see de.mineking.audiolink.client.main.AudioLinkConfig#setPositionSyncInterval(Duration)
+	 */
+	public Duration getPosition(PlayerLayer layer) {
+		return Duration.ofMillis(getPlayer(layer).getPosition(providedFrames));
+	}
+
+	/**
+	 * Requests the position of all playing layers from the server to correct the local position estimates
+	 */
+	private void syncPositions() {
+		if(shutdown || session == null) {
+			return;
+		}
+
+		players.forEach((layer, player) -> {
+			if(!player.isPlaying()) {
+				return;
+			}
+
+			getCurrentTrack(layer).thenAccept(track -> track.ifPresent(t -> player.sync(t.position, getNextFrame())));
+		});
+	}
+
+	private static Optional<CurrentTrackData> readCurrentTrack(ByteBuffer response) {
+		if(!response.hasRemaining()) {
+			return Optional.empty();
 		}
 
-		return currentTrack;
+		try {
+			return Optional.of(new CurrentTrackData(response));
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return the buffer size this connection currently aims for. This adapts to the network conditions within {@link de.mineking.audiolink.client.main.AudioLinkConfig#minBuffer} and {@link de.mineking.audiolink.client.main.AudioLinkConfig#maxBuffer}
+	 */
+	public Duration getTargetBuffer() {
+		return Duration.ofMillis(session.bufferController.getTarget() * 20L);
 	}
 
 	/**
-	 * @return A chunk of PCM audio data from the buffer. The buffer is automatically refilled by a constant network stream.
-	 * @implNote Additionally, this will compare the buffer size with the configured buffer size and send a request to the server to change the next stream packet so that the internal buffer has the correct size.
+	 * @return the smoothed inter-arrival jitter of the received audio frames
 	 */
-	public synchronized byte[] provide() {
+	public Duration getJitter() {
+		return Duration.ofNanos(session.bufferController.getJitter());
+	}
+
+	/**
+	 * @return the amount of frames that could not be provided because the buffer was empty
+	 */
+	public int getUnderrunCount() {
+		return session.bufferController.getUnderruns();
+	}
+
+	/**
+	 * @return the amount of received frames that were dropped because the buffer was full
+	 */
+	public int getOverrunCount() {
+		return session.bufferController.getOverruns();
+	}
+
+	/**
+	 * @return the {@link FrameState} of the frame that was taken by the last call of one of the provide methods. This allows to differentiate between silence sent by the server and an empty buffer
+	 */
+	public FrameState getFrameState() {
+		return frameState;
+	}
+
+	/**
+	 * @return A chunk of PCM audio data from the buffer or {@code null} if there is no audio to play. The buffer is automatically refilled by a constant network stream.
+	 * @apiNote The returned array is reused for the next frame, so it is only valid until the next call of this method. This method may only be called from a single thread.
+	 * @see #provide(ByteBuffer)
+	 * @see #canProvide()
+	 */
+	public byte[] provide() {
+		return poll() ? frame : null;
+	}
+
+	/**
+	 * Takes the next frame from the buffer and writes it to the target buffer. The data is written starting at the current position of the target, like {@link ByteBuffer#put(byte[], int, int)} does.
+	 *
+	 * @param target the buffer to write the PCM audio data to. This may be a direct buffer. It needs at least {@link AudioFrameBuffer#FRAME_SIZE} bytes remaining
+	 * @return whether a frame was written. If this is {@code false} the target was not modified
+	 * @throws BufferOverflowException if the target has less than {@link AudioFrameBuffer#FRAME_SIZE} bytes remaining. No frame is taken in that case
+	 * @apiNote This method may only be called from a single thread.
+	 */
+	public boolean provide(ByteBuffer target) {
+		//Frames are never larger than FRAME_SIZE. Checking before taking the frame makes sure that no audio is lost
+		if(target.remaining() < AudioFrameBuffer.FRAME_SIZE) {
+			throw new BufferOverflowException();
+		}
+
+		if(!poll()) {
+			return false;
+		}
+
+		target.put(frame, 0, frameLength);
+		return true;
+	}
+
+	/**
+	 * Takes the next frame from the buffer. If this returns {@code true}, the frame can be accessed with {@link #getProvidedFrame()}.
+	 * Every call consumes a frame, so this must be called exactly once per 20ms of audio. This is intended to be called from {@code AudioSendHandler#canProvide()}, which JDA calls once per frame.
+	 *
+	 * @return whether there is audio to play for this frame
+	 * @apiNote This method may only be called from a single thread.
+	 */
+	@Override
+	public boolean canProvide() {
+		return poll();
+	}
+
+	/**
+	 * @return a read-only view of the frame that was taken by the last call of {@link #canProvide()}. The returned buffer is reused, so it is only valid until the next frame is taken.
+	 * This is intended to be returned from {@code AudioSendHandler#provide20MsAudio()}.
+	 */
+	@Override
+	public ByteBuffer getProvidedFrame() {
+		return frameView.limit(frameLength).position(0);
+	}
+
+	/**
+	 * @return whether this connection was shut down
+	 */
+	@Override
+	public boolean isFinished() {
+		return shutdown;
+	}
+
+	/**
+	 * Takes the next frame from the buffer and stores it in {@link #frame}.
+	 *
+	 * @return whether the frame contains audio
+	 * @implNote Additionally, this will compare the buffer size with the target buffer size of the {@link BufferController} and send a request to the server to change the next stream packet so that the internal buffer has the correct size.
+	 */
+	private boolean poll() {
 		if(!started) {
 			socketRequest("stream");
 			started = true;
 		}
 
-		if(provideCounter++ >= bufferDuration / 2) {
-			var diff = this.buffer.size() - bufferDuration;
+		var target = migrationTarget;
+
+		if(target != null && target.anchor == null && providedFrames >= migrationFrame && target.buffer.size() > providedFrames - migrationFrame) {
+			cutOver(target);
+		}
+
+		var current = session;
+
+		if(playback != current && (playback == null || playback.buffer.peekLength() < 0)) {
+			playback = current;
+		}
+
+		var length = playback.buffer.peekLength();
+		var diff = playback.bufferController.onProvide(playback.buffer.size(), length < 0 && playback.receiving);
+
+		if(diff != 0 && playback == current) {
+			current.send("bufferCheck", Map.of("difference", diff));
+		}
+
+		if(length >= 0) {
+			providedFrames++;
+
+			if(providedFrames >= scheduledFrame && emitting.compareAndSet(false, true)) {
+				try {
+					client.executor.execute(this::emitScheduledEvents);
+				} catch(RejectedExecutionException ignore) {
+					//The client was shut down
+				}
+			}
+		}
+
+		if(length < 0) {
+			frameState = conceal() ? FrameState.CONCEALED : FrameState.UNDERRUN;
+
+			//Concealed frames are copied from the last frame, which already has the gain applied
+			gain.advance(AudioFrameBuffer.FRAME_SIZE / 4);
+
+			return frameState.hasAudio;
+		}
+
+		concealed = 0;
+
+		if(length == 0) {
+			playback.buffer.skip();
+			gain.advance(AudioFrameBuffer.FRAME_SIZE / 4);
+
+			frameLength = 0;
+			frameState = FrameState.SILENCE;
+
+			return false;
+		}
+
+		if(frame.length != length) {
+			frame = new byte[length];
+			frameView = ByteBuffer.wrap(frame).asReadOnlyBuffer();
+		}
+
+		frameLength = playback.buffer.read(frame);
+		frameState = FrameState.AUDIO;
+
+		gain.process(frame, frameLength);
+
+		return true;
+	}
 
-			if(Math.abs(diff) >= 5) {
-				socketRequest("bufferCheck", Map.of("difference", diff));
+	/**
+	 * Fills {@link #frame} based on the last audio frame according to the configured {@link ConcealmentMode}.
+	 *
+	 * @return whether the underrun could be concealed
+	 */
+	private boolean conceal() {
+		if(client.config.concealment == ConcealmentMode.NONE || frameLength == 0 || concealed >= maxConcealment) {
+			frameLength = 0;
+			return false;
+		}
+
+		if(concealed++ == 0) {
+			if(concealmentFrame.length < frameLength) {
+				concealmentFrame = new byte[frame.length];
 			}
 
-			provideCounter = 0;
+			System.arraycopy(frame, 0, concealmentFrame, 0, frameLength);
+		}
+
+		if(client.config.concealment == ConcealmentMode.FADE) {
+			PcmUtils.applyRamp(concealmentFrame, frame, frameLength, 1 - (concealed - 1) / (float) maxConcealment, 1 - concealed / (float) maxConcealment);
+		}
+
+		else {
+			System.arraycopy(concealmentFrame, 0, frame, 0, frameLength);
 		}
 
-		return this.buffer.poll();
+		return true;
 	}
 
-	@Override
-	public void onOpen(ServerHandshake data) {}
+	/**
+	 * Called when the socket of a session was closed
+	 *
+	 * @param session the session
+	 * @param remote  whether the socket was closed by the server
+	 */
+	void handleClose(AudioLinkSession session, boolean remote) {
+		if(shutdown) {
+			return;
+		}
+
+		//The client is shutting down, so there is nothing to reconnect to and no executor to schedule on
+		if(client.getSocketPool().isShutdown()) {
+			shutdown = true;
+			release();
+
+			return;
+		}
+
+		if(session == migrationTarget) {
+			finishMigration(new IOException("Connection to migration target was closed"));
+			return;
+		}
+
+		if(session != this.session) {
+			return;
+		}
+
+		//Switch to the migration target early instead of reconnecting. The remaining buffer of the old session is still played
+		var target = migrationTarget;
+		if(target != null && MIGRATION_TARGET.compareAndSet(this, target, null)) {
+			//The restored tracks were already announced
+			restoring.addAll(migrationRestored);
+
+			this.session = target;
+			this.source = target.socket.source;
+
+			replayDeferredEvents();
+			finishMigration(null);
+
+			return;
+		}
+
+		if(client.config.reconnectAttempts > 0) {
+			AudioLinkClient.log.warn("Lost connection to source '{}', reconnecting", source.host + ":" + source.port);
+			reconnect(0);
+
+			return;
+		}
 
-	@Override
-	public void onClose(int code, String reason, boolean remote) {
 		shutdown();
 
 		if(remote && disconnectListener != null) {
@@ -376,11 +1130,338 @@ public class AudioLinkConnection extends WebSocketClient {
 		}
 	}
 
-	@Override
-	public void onMessage(String s) {}
+	/**
+	 * Tries to re-establish the connection after an exponential backoff with jitter. The buffered audio of the old session keeps being provided in the meantime.
+	 *
+	 * @param attempt the number of the attempt, starting with 0
+	 */
+	private void reconnect(int attempt) {
+		if(shutdown || client.getSocketPool().isShutdown()) {
+			return;
+		}
 
-	@Override
-	public void onError(Exception e) {
-		AudioLinkClient.log.error("WebSocket error", e);
+		if(attempt >= client.config.reconnectAttempts) {
+			AudioLinkClient.log.error("Failed to reconnect to source '{}' after {} attempts", source.host + ":" + source.port, attempt);
+			shutdown();
+
+			if(disconnectListener != null) {
+				disconnectListener.run();
+			}
+
+			return;
+		}
+
+		var base = Math.min(client.config.maxReconnectDelay.toMillis(), client.config.reconnectDelay.toMillis() << Math.min(attempt, 20));
+		var delay = base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+
+		client.executor.schedule(() -> {
+			var target = attempt > 0 && client.config.reconnectFailover
+					? client.findSourceAsync().thenApply(s -> s.orElse(source))
+					: CompletableFuture.completedFuture(source);
+
+			target.thenCompose(s -> client.getSocketPool().openSession(s, this, clientInfo).thenApply(session -> {
+				if(shutdown) {
+					session.close();
+					return session;
+				}
+
+				this.source = s;
+				this.session = session;
+
+				restore(session, getNextFrame(), true);
+
+				AudioLinkClient.log.info("Reconnected to source '{}'", s.host + ":" + s.port);
+				return session;
+			})).whenComplete((session, e) -> {
+				if(e != null) {
+					reconnect(attempt + 1);
+				}
+			});
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Restores the state of all players on a session.
+	 *
+	 * @param session       the session to restore the players on
+	 * @param frame         the frame number at which the first frame of the session is played. Tracks continue at the position they have at that frame
+	 * @param suppressStart whether the track start events caused by this should not be passed to the listeners
+	 */
+	private void restore(AudioLinkSession session, long frame, boolean suppressStart) {
+		if(started || session != this.session) {
+			session.send("stream", Collections.emptyMap());
+		}
+
+		players.forEach((layer, player) -> {
+			var play = player.getPlay();
+			var loader = player.getLoader();
+			var applied = CompletableFuture.<Void>completedFuture(null);
+
+			if(play != null) {
+				play.put("position", player.getPosition(frame));
+				player.play(play, loader, frame);
+
+				if(suppressStart) {
+					restoring.add(layer);
+				}
+
+				//Uploads are specific to a source, so the data has to be applied again. The commands of the layer are sent once this is done
+				applied = reapply(session.socket.source, play, loader).thenRun(() -> session.send("play", playerParams(layer, play)));
+			}
+
+			applied.whenComplete((x, e) -> {
+				if(e != null) {
+					restoring.remove(layer);
+					AudioLinkClient.log.error("Failed to restore track on layer {}", layer, e);
+				}
+
+				restorePlayer(session, layer, player);
+			});
+		});
+	}
+
+	/**
+	 * Applies the data of a loader again if the parameters reference data that was uploaded to another source
+	 *
+	 * @param source the {@link AudioLinkSource} the parameters are sent to
+	 * @param params the parameters of the play command. They are modified in place
+	 * @param loader the {@link TrackLoader} that created the parameters
+	 * @return a {@link CompletableFuture} that is completed once the parameters can be sent
+	 */
+	private CompletableFuture<Void> reapply(AudioLinkSource source, Map<String, Object> params, TrackLoader loader) {
+		if(loader == null || !params.containsKey("upload")) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		params.remove("upload");
+		return loader.applyDataAsync(client, source, params);
+	}
+
+	/**
+	 * Uploads the data of the current track again after the source failed to load it and plays it again
+	 *
+	 * @param session the session that failed to load the track
+	 * @param layer   the {@link PlayerLayer} of the track
+	 * @param player  the {@link PlayerState} of the layer
+	 */
+	private void retryUpload(AudioLinkSession session, PlayerLayer layer, PlayerState player) {
+		var play = player.getPlay();
+		var loader = player.getLoader();
+		var request = player.getPlayRequest();
+
+		loader.invalidate(session.socket.source);
+
+		reapply(session.socket.source, play, loader).whenComplete((x, e) -> {
+			if(e != null) {
+				AudioLinkClient.log.error("Failed to upload track on layer {} again", layer, e);
+				return;
+			}
+
+			if(player.play(request, play, loader, getNextFrame())) {
+				playerRequest(layer, "play", play);
+			}
+		});
+	}
+
+	/**
+	 * Restores the volume, pause state and queue of a player
+	 *
+	 * @param session the session to restore the player on
+	 * @param layer   the {@link PlayerLayer}
+	 * @param player  the {@link PlayerState} of the layer
+	 */
+	private void restorePlayer(AudioLinkSession session, PlayerLayer layer, PlayerState player) {
+		var volume = player.getVolume();
+
+		if(volume != null) {
+			session.send("volume", playerParams(layer, Map.of("volume", volume)));
+		}
+
+		if(player.isPaused()) {
+			session.send("pause", playerParams(layer, Map.of("state", true)));
+		}
+
+		var queued = player.getQueued();
+
+		if(queued != null) {
+			var params = new HashMap<>(queued.params());
+
+			//The new session does not know the queued track yet, so it is played by the client unless it is queued again below
+			var pending = player.requeue(queued, params, false);
+
+			if(pending == null || !session.socket.supportsQueue()) {
+				return;
+			}
+
+			//The queued track may reference data that was uploaded to the previous source as well
+			reapply(session.socket.source, params, queued.loader()).whenComplete((x, e) -> {
+				if(e != null) {
+					AudioLinkClient.log.error("Failed to restore queued track on layer {}", layer, e);
+				}
+
+				else if(player.requeue(pending, params, true) != null) {
+					session.send("queue", playerParams(layer, params));
+				}
+			});
+		}
+	}
+
+	/**
+	 * Moves this connection to another source without interrupting the playback.
+	 * The tracks of all layers are started on the target source at the position that is reached after the currently buffered audio and the configured migration lead.
+	 * Meanwhile, the current source keeps streaming. Once the buffer of the target source is filled, the playback switches to it at a frame boundary and the old session is closed.
+	 * <p>
+	 * The buffer of the target is aligned to the track start event of the target, audio it sends while loading the track is discarded. Events of the target are emitted after the switch, unless the old source already emitted the same event.
+	 * If the switch did not happen within the configured timeout, the target session is closed and the connection stays on its current source.
+	 *
+	 * @param target the {@link AudioLinkSource} to move to
+	 * @return a {@link CompletableFuture} that is completed once the playback switched to the target source. It completes exceptionally with a {@link TimeoutException} if the migration was aborted
+	 * @see de.mineking.audiolink.client.main.AudioLinkConfig#setMigrationLead(Duration)
+	 * @see de.mineking.audiolink.client.main.AudioLinkConfig#setMigrationTimeout(Duration)
+	 */
+	public synchronized CompletableFuture<Void> migrateTo(AudioLinkSource target) {
+		if(migration != null) {
+			return CompletableFuture.failedFuture(new IllegalStateException("A migration is already running"));
+		}
+
+		var result = new CompletableFuture<Void>();
+		migration = result;
+
+		client.executor.schedule(() -> abortMigration(result, target), client.config.migrationTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+		client.getSocketPool().openSession(target, this, clientInfo).whenComplete((session, e) -> {
+			if(e != null) {
+				finishMigration(e);
+				return;
+			}
+
+			synchronized(this) {
+				if(shutdown || migration != result) {
+					session.close();
+					return;
+				}
+
+				//Leave the target enough time to load the track and fill its buffer, but never more than it can hold
+				var lead = Math.min(session.buffer.capacity() / 2, session.bufferController.getTarget() + client.config.migrationLead.toMillis() / 20);
+				var frame = getNextFrame() + lead;
+
+				players.forEach((layer, player) -> {
+					if(player.isPlaying()) {
+						migrationRestored.add(layer);
+					}
+				});
+
+				//Audio the target sends while it loads the track does not belong to any position, so it is discarded until the track starts
+				session.anchor = getAnchor();
+
+				migrationFrame = frame;
+				migrationSession = session;
+				migrationTarget = session;
+
+				restore(session, frame, false);
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * @return the restored layer the buffer of the migration target is aligned to. This is the playing layer with the lowest id, so the primary layer if it is playing, or {@code null} if no layer is playing
+	 */
+	private PlayerLayer getAnchor() {
+		for(var layer : PlayerLayer.values()) {
+			if(layer != PlayerLayer.ALL && migrationRestored.contains(layer)) {
+				return layer;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Switches the playback to the target of the running migration. This is called from the audio send thread.
+	 *
+	 * @param target the migration target
+	 */
+	private void cutOver(AudioLinkSession target) {
+		if(!MIGRATION_TARGET.compareAndSet(this, target, null)) {
+			//The migration was aborted
+			return;
+		}
+
+		//The buffer of the target starts with the first frame of the restored track, which belongs to migrationFrame. Skip frames that were already played from the old buffer
+		for(var i = migrationFrame; i < providedFrames; i++) {
+			target.buffer.skip();
+		}
+
+		var old = session;
+
+		this.source = target.socket.source;
+		this.session = target;
+		this.playback = target;
+
+		client.executor.execute(() -> {
+			old.close();
+			replayDeferredEvents();
+			finishMigration(null);
+		});
+	}
+
+	/**
+	 * Aborts a migration that did not switch to its target in time. This does nothing if the migration already finished
+	 *
+	 * @param result the future of the migration
+	 * @param source the {@link AudioLinkSource} the migration moves to
+	 */
+	private void abortMigration(CompletableFuture<Void> result, AudioLinkSource source) {
+		AudioLinkSession target;
+
+		synchronized(this) {
+			if(migration != result) {
+				return;
+			}
+
+			//The session is null while it is still being opened. It is closed once it is ready, because the migration is no longer running then
+			target = migrationSession;
+
+			if(target != null && !MIGRATION_TARGET.compareAndSet(this, target, null)) {
+				//The playback already switched to the target
+				return;
+			}
+
+			finishMigration(new TimeoutException("Migration to source '" + source.host + ":" + source.port + "' did not finish within " + client.config.migrationTimeout.toMillis() + "ms"));
+		}
+
+		if(target != null) {
+			target.close();
+
+			synchronized(deferredEvents) {
+				deferredEvents.removeIf(deferred -> deferred.session == target);
+			}
+		}
+	}
+
+	private synchronized void finishMigration(Throwable error) {
+		var result = migration;
+
+		migration = null;
+		migrationSession = null;
+		migrationTarget = null;
+
+		migrationRestored.clear();
+		migrationEmitted.clear();
+
+		if(result == null) {
+			return;
+		}
+
+		if(error == null) {
+			AudioLinkClient.log.info("Migrated connection to source '{}'", source.host + ":" + source.port);
+			result.complete(null);
+		}
+
+		else {
+			result.completeExceptionally(error);
+		}
 	}
 }
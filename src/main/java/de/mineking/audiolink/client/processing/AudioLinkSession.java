@@ -0,0 +1,100 @@
+package de.mineking.audiolink.client.processing;
+
+import de.mineking.audiolink.client.data.CommandData;
+import de.mineking.audiolink.client.data.PlayerLayer;
+import de.mineking.audiolink.client.main.AudioLinkClient;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A logical player session on an {@link AudioLinkSocket}. The session owns the audio buffer that is filled by the socket and forwards all other messages to its {@link AudioLinkConnection}.
+ */
+class AudioLinkSession {
+	final AudioLinkSocket socket;
+	final int id;
+
+	final AudioFrameBuffer buffer;
+	final BufferController bufferController;
+
+	volatile AudioLinkConnection connection;
+	volatile boolean receiving = false;
+
+	//While set, received audio is discarded until the track on this layer started. This aligns the first buffered frame with the start of the track
+	volatile PlayerLayer anchor;
+
+	AudioLinkSession(AudioLinkSocket socket, int id, AudioLinkConnection connection) {
+		this.socket = socket;
+		this.id = id;
+		this.connection = connection;
+
+		this.bufferController = new BufferController(connection.getClient().config);
+		this.buffer = new AudioFrameBuffer(bufferController.getMax() * 2);
+	}
+
+	/**
+	 * Handles a binary message for this session. This is called from the read thread of the socket.
+	 *
+	 * @param input the message without the session header
+	 */
+	void handle(ByteBuffer input) {
+		try {
+			var type = input.get();
+
+			if(type == 0) {
+				bufferController.onReceive();
+				receiving = true;
+
+				if(anchor != null) {
+					return;
+				}
+
+				if(!buffer.write(input)) {
+					bufferController.onOverrun();
+				}
+			}
+
+			else {
+				connection.handleMessage(this, type, input);
+			}
+		} catch(Exception e) {
+			AudioLinkClient.log.error("Exception", e);
+		}
+	}
+
+	/**
+	 * Called when the underlying socket was closed
+	 *
+	 * @param remote whether the socket was closed by the server
+	 */
+	void handleClose(boolean remote) {
+		connection.handleClose(this, remote);
+	}
+
+	/**
+	 * Sends a command for this session.
+	 *
+	 * @param command the name of the command
+	 * @param args    the parameter map
+	 */
+	void send(String command, Map<String, Object> args) {
+		socket.send(this, command, args);
+	}
+
+	/**
+	 * Sends multiple commands for this session, as a single batch if the source supports it.
+	 *
+	 * @param commands the commands to send
+	 */
+	void send(List<CommandData> commands) {
+		socket.send(this, commands);
+	}
+
+	/**
+	 * Closes this session. If this is the last session of its socket, the socket is closed as well.
+	 */
+	void close() {
+		socket.closeSession(this);
+	}
+}
@@ -0,0 +1,243 @@
+package de.mineking.audiolink.client.processing;
+
+import de.mineking.audiolink.client.data.CommandData;
+import de.mineking.audiolink.client.main.AudioLinkClient;
+import de.mineking.audiolink.client.main.AudioLinkSource;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A WebSocket connection to an {@link AudioLinkSource}. A dedicated socket carries a single {@link AudioLinkSession}.
+ * A multiplexed socket carries many sessions, prefixes every binary message from the server with the session id and tags every command with the session id.
+ */
+class AudioLinkSocket extends WebSocketClient {
+	final SocketPool pool;
+	final AudioLinkSource source;
+	final boolean multiplexed;
+
+	private final Map<Integer, AudioLinkSession> sessions = new ConcurrentHashMap<>();
+	private int nextId = 0;
+
+	private final CompletableFuture<AudioLinkSocket> opened = new CompletableFuture<>();
+	private String clientInfo;
+
+	private final ByteBuffer commandBuffer = ByteBuffer.allocate(4096);
+
+	AudioLinkSocket(SocketPool pool, AudioLinkSource source, boolean multiplexed) {
+		super(source.getURI("ws", multiplexed ? "multiplex" : "gateway"));
+
+		this.pool = pool;
+		this.source = source;
+		this.multiplexed = multiplexed;
+	}
+
+	/**
+	 * Starts connecting this socket. Once the connection is established, the socket authenticates with the source. This method does not block.
+	 *
+	 * @param clientInfo a string identifying this socket. It will be displayed in the server logs
+	 * @return a {@link CompletableFuture} that is completed when the socket is ready to use
+	 */
+	CompletableFuture<AudioLinkSocket> open(String clientInfo) {
+		this.clientInfo = clientInfo;
+		connect();
+
+		return opened;
+	}
+
+	/**
+	 * @return a {@link CompletableFuture} that is completed when the socket is ready to use
+	 */
+	CompletableFuture<AudioLinkSocket> getOpened() {
+		return opened;
+	}
+
+	/**
+	 * @return the amount of sessions on this socket
+	 */
+	int getSessionCount() {
+		return sessions.size();
+	}
+
+	/**
+	 * Creates a new session on this socket. On a multiplexed socket, the session has to be announced to the server with {@link #openSession(AudioLinkSession, String)} once the socket is open.
+	 *
+	 * @param connection the {@link AudioLinkConnection} that owns the session
+	 * @param clientInfo a string identifying the session. It will be displayed in the server logs
+	 * @return the new session
+	 */
+	synchronized AudioLinkSession createSession(AudioLinkConnection connection, String clientInfo) {
+		var session = new AudioLinkSession(this, nextId++, connection);
+		sessions.put(session.id, session);
+		pool.sessionOpened(source);
+
+		return session;
+	}
+
+	/**
+	 * Announces a session to the server. This does nothing on a dedicated socket.
+	 *
+	 * @param session    the session
+	 * @param clientInfo a string identifying the session. It will be displayed in the server logs
+	 */
+	void openSession(AudioLinkSession session, String clientInfo) {
+		if(multiplexed) {
+			session.send("open", Map.of("clientInfo", clientInfo));
+		}
+	}
+
+	/**
+	 * Closes a session. The socket is closed when there are no sessions left.
+	 *
+	 * @param session the session to close
+	 */
+	void closeSession(AudioLinkSession session) {
+		if(sessions.remove(session.id) == null) {
+			return;
+		}
+
+		pool.sessionClosed(source);
+
+		if(multiplexed) {
+			session.send("close", Map.of());
+		}
+
+		pool.release(this);
+	}
+
+	/**
+	 * Sends a command for a session. If the source supports binary commands, built-in commands are encoded into a reused buffer and sent as binary frame.
+	 *
+	 * @param session the session that sends the command
+	 * @param command the name of the command
+	 * @param args    the parameter map
+	 */
+	void send(AudioLinkSession session, String command, Map<String, Object> args) {
+		if(pool.client.config.binaryCommands && supports("binaryCommands")) {
+			//The WebSocket implementation copies the payload while framing it, so the buffer can be reused once send returns
+			synchronized(commandBuffer) {
+				commandBuffer.clear();
+
+				if(multiplexed) {
+					commandBuffer.putInt(session.id);
+				}
+
+				if(CommandEncoder.encode(command, args, commandBuffer)) {
+					try {
+						send(commandBuffer.flip());
+					} catch(WebsocketNotConnectedException ignore) {
+					}
+
+					return;
+				}
+			}
+		}
+
+		send(new CommandData(command, args, multiplexed ? session.id : null));
+	}
+
+	/**
+	 * Sends multiple commands for a session. If the source supports batches, all commands are sent in a single frame.
+	 *
+	 * @param session  the session that sends the commands
+	 * @param commands the commands to send
+	 */
+	void send(AudioLinkSession session, List<CommandData> commands) {
+		if(commands.size() == 1 || !supports("batch")) {
+			commands.forEach(c -> send(session, c.command, c.args));
+			return;
+		}
+
+		send(new CommandData("batch", Map.of("commands", commands), multiplexed ? session.id : null));
+	}
+
+	/**
+	 * Sends a command as JSON
+	 *
+	 * @param command the command to send
+	 */
+	void send(CommandData command) {
+		try {
+			send(AudioLinkClient.gson.toJson(command));
+		} catch(WebsocketNotConnectedException ignore) {
+		}
+	}
+
+	@Override
+	public void onMessage(ByteBuffer input) {
+		var session = sessions.get(multiplexed ? input.getInt() : 0);
+
+		if(session != null) {
+			session.handle(input);
+		}
+	}
+
+	@Override
+	public void onOpen(ServerHandshake data) {
+		send(AudioLinkClient.gson.toJson(new AudioLinkConnection.ClientConfiguration(source.password, clientInfo)));
+		AudioLinkClient.log.info("Connected to source '{}'", getURI());
+
+		pool.client.getAssets().preload(source);
+
+		//Resolve the capabilities in the background. Commands are sent in the basic format until they are known
+		var config = pool.client.config;
+
+		if(config.binaryCommands) {
+			source.getCapability(pool.client, "binaryCommands");
+		}
+
+		if(!config.commandCoalesceWindow.isZero()) {
+			source.getCapability(pool.client, "batch");
+		}
+
+		source.getCapability(pool.client, "queue");
+
+		opened.complete(this);
+	}
+
+	/**
+	 * @return whether the source supports queueing the next track. This is {@code false} until the capability was resolved
+	 */
+	boolean supportsQueue() {
+		return supports("queue");
+	}
+
+	/**
+	 * @param command the name of the command
+	 * @return whether the source supports the command. This uses the capabilities cached by the source and is {@code false} while they are not resolved yet
+	 */
+	private boolean supports(String command) {
+		return source.hasCapability(command);
+	}
+
+	@Override
+	public void onClose(int code, String reason, boolean remote) {
+		opened.completeExceptionally(new IOException("Failed to connect to source '" + getURI() + "': " + reason));
+		pool.remove(this);
+
+		for(var id : sessions.keySet()) {
+			var session = sessions.remove(id);
+
+			if(session != null) {
+				pool.sessionClosed(source);
+				session.handleClose(remote);
+			}
+		}
+	}
+
+	@Override
+	public void onMessage(String s) {}
+
+	@Override
+	public void onError(Exception e) {
+		AudioLinkClient.log.error("WebSocket error", e);
+	}
+}
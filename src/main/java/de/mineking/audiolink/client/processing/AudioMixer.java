@@ -0,0 +1,261 @@
+package de.mineking.audiolink.client.processing;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mixes the frames of multiple {@link FrameProvider}s, like connections and local clips, into a single frame. Every input has its own gain, the sum of all inputs is saturated to the 16-bit range.
+ * <p>
+ * Inputs can be added and removed from any thread. Mixing a frame does not lock: finished inputs are only marked while mixing and removed by a task on the executor of the mixer, so that the mixing thread never waits for {@link #add(FrameProvider, float)} or {@link #remove(Input)}.
+ *
+ * @implNote The mixing loops are plain scalar loops. The Vector API is still an incubator module in Java 17, so it is not used.
+ */
+public class AudioMixer implements FrameProvider {
+	private final static int SAMPLES = AudioFrameBuffer.FRAME_SIZE / 2;
+
+	private final Executor executor;
+	private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+	private volatile Input[] inputs = new Input[0];
+
+	private final int[] mix = new int[SAMPLES];
+	private final byte[] frame = new byte[AudioFrameBuffer.FRAME_SIZE];
+	private final ByteBuffer frameView = ByteBuffer.wrap(frame).asReadOnlyBuffer();
+
+	/**
+	 * @param executor the {@link Executor} that removes finished inputs, for example {@link de.mineking.audiolink.client.main.AudioLinkClient#executor}
+	 */
+	public AudioMixer(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Creates a mixer that removes finished inputs on the common {@link ForkJoinPool}
+	 */
+	public AudioMixer() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * An input of the mixer
+	 */
+	public class Input {
+		public final FrameProvider provider;
+		private volatile float gain;
+		//Set by the mixing thread once the provider is finished
+		private volatile boolean finished = false;
+
+		private Input(FrameProvider provider, float gain) {
+			this.provider = provider;
+			this.gain = gain;
+		}
+
+		/**
+		 * @param gain the new gain of this input. {@code 1} keeps the original volume
+		 */
+		public void setGain(float gain) {
+			this.gain = gain;
+		}
+
+		public float getGain() {
+			return gain;
+		}
+
+		/**
+		 * Removes this input from the mixer
+		 */
+		public void remove() {
+			AudioMixer.this.remove(this);
+		}
+	}
+
+	/**
+	 * @param provider the {@link FrameProvider} to add
+	 * @param gain     the gain of the input. {@code 1} keeps the original volume
+	 * @return the resulting {@link Input}
+	 */
+	public synchronized Input add(FrameProvider provider, float gain) {
+		var input = new Input(provider, gain);
+
+		compact();
+
+		var temp = Arrays.copyOf(inputs, inputs.length + 1);
+		temp[temp.length - 1] = input;
+		inputs = temp;
+
+		return input;
+	}
+
+	/**
+	 * @param provider the {@link FrameProvider} to add
+	 * @return the resulting {@link Input}
+	 */
+	public Input add(FrameProvider provider) {
+		return add(provider, 1);
+	}
+
+	/**
+	 * @param input the {@link Input} to remove
+	 */
+	public synchronized void remove(Input input) {
+		compact();
+
+		var current = inputs;
+
+		for(int i = 0; i < current.length; i++) {
+			if(current[i] == input) {
+				var temp = new Input[current.length - 1];
+
+				System.arraycopy(current, 0, temp, 0, i);
+				System.arraycopy(current, i + 1, temp, i, temp.length - i);
+
+				inputs = temp;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Schedules the removal of finished inputs. This is called from the mixing thread, so it only submits a task if none is pending yet
+	 */
+	private void scheduleCompaction() {
+		if(!compactionScheduled.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			executor.execute(() -> {
+				compactionScheduled.set(false);
+
+				synchronized(this) {
+					compact();
+				}
+			});
+		} catch(RejectedExecutionException e) {
+			//Finished inputs are still removed with the next add or remove
+			compactionScheduled.set(false);
+		}
+	}
+
+	/**
+	 * Removes all inputs that were marked as finished while mixing
+	 */
+	private void compact() {
+		var current = inputs;
+		var count = 0;
+
+		for(var input : current) {
+			if(!input.finished) {
+				count++;
+			}
+		}
+
+		if(count == current.length) {
+			return;
+		}
+
+		var temp = new Input[count];
+		var i = 0;
+
+		for(var input : current) {
+			if(!input.finished) {
+				temp[i++] = input;
+			}
+		}
+
+		inputs = temp;
+	}
+
+	/**
+	 * @return the amount of inputs that are not finished
+	 */
+	public int getInputCount() {
+		var count = 0;
+
+		for(var input : inputs) {
+			if(!input.finished) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Takes the next frame of all inputs and mixes them. Inputs that are finished are marked and skipped, they are removed by a task on the executor of the mixer.
+	 *
+	 * @return whether any input provided audio for this frame
+	 * @apiNote This method may only be called from a single thread.
+	 */
+	@Override
+	public boolean canProvide() {
+		var current = inputs;
+		var audio = false;
+
+		for(var input : current) {
+			if(input.finished) {
+				continue;
+			}
+
+			if(!input.provider.canProvide()) {
+				if(input.provider.isFinished()) {
+					input.finished = true;
+					scheduleCompaction();
+				}
+
+				continue;
+			}
+
+			var data = input.provider.getProvidedFrame();
+
+			if(!audio) {
+				Arrays.fill(mix, 0);
+				audio = true;
+			}
+
+			accumulate(data, input.gain);
+		}
+
+		if(!audio) {
+			return false;
+		}
+
+		for(int i = 0, j = 0; i < SAMPLES; i++, j += 2) {
+			var sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+
+			frame[j] = (byte) (sample >> 8);
+			frame[j + 1] = (byte) sample;
+		}
+
+		return true;
+	}
+
+	private void accumulate(ByteBuffer data, float gain) {
+		var offset = data.position();
+		var samples = Math.min(SAMPLES, data.remaining() / 2);
+
+		if(gain == 1) {
+			for(int i = 0; i < samples; i++) {
+				mix[i] += data.getShort(offset + i * 2);
+			}
+		}
+
+		else {
+			for(int i = 0; i < samples; i++) {
+				mix[i] += (int) (data.getShort(offset + i * 2) * gain);
+			}
+		}
+	}
+
+	/**
+	 * @return a read-only view of the last mixed frame. The returned buffer is reused, so it is only valid until the next frame is mixed
+	 */
+	@Override
+	public ByteBuffer getProvidedFrame() {
+		return frameView.position(0);
+	}
+}
@@ -0,0 +1,165 @@
+package de.mineking.audiolink.client.processing;
+
+import de.mineking.audiolink.client.main.AudioLinkConfig;
+
+/**
+ * Adapts the target size of the buffer of a single connection. The target starts at {@link AudioLinkConfig#buffer} and follows the measured inter-arrival jitter of the received frames. It is raised immediately after underruns or if the jitter grows.
+ * Once enough frames were received for a meaningful jitter estimate, it slowly decays to the lowest size that did not cause underruns. Corrections are only issued once per {@link AudioLinkConfig#bufferCorrectionInterval}.
+ * <p>
+ * {@link #onReceive()} and {@link #onOverrun()} are called from the WebSocket thread, {@link #onProvide(int, boolean)} is called from the audio send thread.
+ */
+class BufferController {
+	private final static long FRAME_NANOS = 20_000_000;
+	//Frames without underrun until the underrun margin is reduced by one frame
+	private final static int DECAY_FRAMES = 250;
+	//Received frames until the jitter estimate is used to shrink the target
+	private final static int WARMUP_SAMPLES = 50;
+
+	private final int min;
+	private final int max;
+	private final int interval;
+
+	//Written by the WebSocket thread
+	private long lastArrival = 0;
+	private volatile long jitter = 0;
+	private volatile int samples = 0;
+	private volatile int overruns = 0;
+
+	//Written by the audio send thread
+	private int target;
+	private int margin = 0;
+	private double level;
+	private int ticks = 0;
+	private int stableTicks = 0;
+	private int shrinkTicks = 0;
+	private int underruns = 0;
+	private int lastOverruns = 0;
+
+	BufferController(AudioLinkConfig config) {
+		this.min = Math.max(1, (int) (config.minBuffer.toMillis() / 20));
+		this.max = Math.max(min, (int) (config.maxBuffer.toMillis() / 20));
+		this.interval = Math.max(1, (int) (config.bufferCorrectionInterval.toMillis() / 20));
+
+		this.target = Math.max(min, Math.min(max, (int) (config.buffer.toMillis() / 20)));
+		this.level = target;
+	}
+
+	/**
+	 * @return the maximum amount of frames the buffer may hold
+	 */
+	int getMax() {
+		return max;
+	}
+
+	/**
+	 * @return the current target amount of frames
+	 */
+	int getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return the smoothed inter-arrival jitter in nanoseconds
+	 */
+	long getJitter() {
+		return jitter;
+	}
+
+	/**
+	 * @return the amount of underruns since this controller was created
+	 */
+	int getUnderruns() {
+		return underruns;
+	}
+
+	/**
+	 * @return the amount of frames that were dropped because the buffer was full
+	 */
+	int getOverruns() {
+		return overruns;
+	}
+
+	/**
+	 * Called for every frame that is received from the server
+	 */
+	void onReceive() {
+		var now = System.nanoTime();
+
+		if(lastArrival != 0) {
+			var deviation = Math.abs(now - lastArrival - FRAME_NANOS);
+
+			//Same estimator as RFC 3550
+			jitter += (deviation - jitter) / 16;
+
+			if(samples < WARMUP_SAMPLES) {
+				samples++;
+			}
+		}
+
+		lastArrival = now;
+	}
+
+	/**
+	 * Called when a received frame had to be dropped because the buffer was full
+	 */
+	void onOverrun() {
+		overruns++;
+	}
+
+	/**
+	 * Called once for every provided frame
+	 *
+	 * @param buffered the amount of frames currently in the buffer
+	 * @param underrun whether the buffer was empty when a frame was requested
+	 * @return the difference between the buffer size and the target size that should be reported to the server or {@code 0} if no correction is required
+	 */
+	int onProvide(int buffered, boolean underrun) {
+		if(underrun) {
+			underruns++;
+			margin = Math.min(margin + 2, max);
+			stableTicks = 0;
+		}
+
+		else if(++stableTicks >= DECAY_FRAMES && margin > 0) {
+			margin--;
+			stableTicks = 0;
+		}
+
+		var jitterFrames = (int) ((jitter * 4 + FRAME_NANOS - 1) / FRAME_NANOS);
+		var desired = Math.max(min, Math.min(max, 1 + jitterFrames + margin));
+
+		if(desired >= target) {
+			target = desired;
+			shrinkTicks = 0;
+		}
+
+		//Shrinking is only based on a settled jitter estimate and happens one frame at a time, so the configured buffer is not discarded right away
+		else if(samples >= WARMUP_SAMPLES && ++shrinkTicks >= DECAY_FRAMES) {
+			target--;
+			shrinkTicks = 0;
+		}
+
+		level += (buffered - level) / 8;
+
+		if(++ticks < interval) {
+			return 0;
+		}
+
+		ticks = 0;
+
+		//Overruns mean that the server is too far ahead, so skip the hysteresis in that case
+		var currentOverruns = overruns;
+		var overrun = currentOverruns != lastOverruns;
+		lastOverruns = currentOverruns;
+
+		var diff = (int) Math.round(level - target);
+
+		if(!overrun && Math.abs(diff) < Math.max(2, target / 4)) {
+			return 0;
+		}
+
+		//Assume the server applies the correction, so that the next one is based on the new level
+		level -= diff;
+		return diff;
+	}
+}
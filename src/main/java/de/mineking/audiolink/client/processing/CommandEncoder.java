@@ -0,0 +1,99 @@
+package de.mineking.audiolink.client.processing;
+
+import de.mineking.audiolink.client.data.BufferWriter;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encodes the built-in commands into the compact binary command format. A binary command consists of the opcode, the layer ({@code -1} for commands without layer) and the command specific payload.
+ * Commands that are not known or that have parameters that cannot be encoded are sent as JSON instead.
+ */
+final class CommandEncoder {
+	private interface Encoder {
+		/**
+		 * @return whether the arguments could be encoded
+		 */
+		boolean encode(Map<String, Object> args, ByteBuffer out) throws Exception;
+	}
+
+	private final static Map<String, Encoder> encoders = Map.of(
+			"play", (args, out) -> {
+				if(!(args.get("url") instanceof String url) || !Set.of("url", "position", "marker", "layer").containsAll(args.keySet())) {
+					return false;
+				}
+
+				header(out, 0, args);
+				BufferWriter.writeUTF(out, url);
+				out.putLong(((Number) args.get("position")).longValue());
+				out.putLong(((Number) args.get("marker")).longValue());
+
+				return true;
+			},
+			"stop", (args, out) -> header(out, 1, args),
+			"pause", (args, out) -> {
+				header(out, 2, args);
+				out.put((byte) ((Boolean) args.get("state") ? 1 : 0));
+
+				return true;
+			},
+			"volume", (args, out) -> {
+				header(out, 3, args);
+				out.putInt(((Number) args.get("volume")).intValue());
+
+				return true;
+			},
+			"seek", (args, out) -> {
+				header(out, 4, args);
+				out.putLong(((Number) args.get("position")).longValue());
+
+				return true;
+			},
+			"bufferCheck", (args, out) -> {
+				header(out, 5, args);
+				out.putInt(((Number) args.get("difference")).intValue());
+
+				return true;
+			},
+			"stream", (args, out) -> header(out, 6, args),
+			"current", (args, out) -> {
+				header(out, 7, args);
+				out.putInt(args.get("requestId") instanceof Integer id ? id : -1);
+
+				return true;
+			}
+	);
+
+	private CommandEncoder() {}
+
+	private static boolean header(ByteBuffer out, int opcode, Map<String, Object> args) {
+		out.put((byte) opcode);
+		out.put(args.get("layer") instanceof Byte layer ? layer : (byte) -1);
+
+		return true;
+	}
+
+	/**
+	 * Encodes a command. If this returns {@code false}, the content of the buffer is undefined.
+	 *
+	 * @param command the name of the command
+	 * @param args    the parameter map
+	 * @param out     the buffer to write the command to
+	 * @return whether the command could be encoded
+	 */
+	static boolean encode(String command, Map<String, Object> args, ByteBuffer out) {
+		var encoder = encoders.get(command);
+
+		if(encoder == null) {
+			return false;
+		}
+
+		try {
+			return encoder.encode(args, out);
+		} catch(Exception e) {
+			//For example a BufferOverflowException for very long urls or a ClassCastException for unexpected parameter types
+			return false;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package de.mineking.audiolink.client.processing;
+
+import de.mineking.audiolink.client.data.CommandData;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects outgoing commands of a connection for a short window. Idempotent commands (volume, seek and pause) replace earlier commands of the same type for the same layer, so that only the last one is sent.
+ * All other commands flush the queue immediately to keep the order of commands intact.
+ */
+class CommandQueue {
+	private final static Set<String> coalescable = Set.of("volume", "seek", "pause");
+
+	private final ScheduledExecutorService executor;
+	private final Duration window;
+	private final Consumer<List<CommandData>> sink;
+
+	private final Map<String, CommandData> pending = new LinkedHashMap<>();
+	private ScheduledFuture<?> scheduled;
+
+	/**
+	 * @param executor the executor to schedule flushes with
+	 * @param window   the time commands are collected before they are sent
+	 * @param sink     receives the commands to send. Lists with more than one command should be sent as a single batch
+	 */
+	CommandQueue(ScheduledExecutorService executor, Duration window, Consumer<List<CommandData>> sink) {
+		this.executor = executor;
+		this.window = window;
+		this.sink = sink;
+	}
+
+	/**
+	 * Adds a command to the queue
+	 *
+	 * @param command the name of the command
+	 * @param args    the parameter map
+	 */
+	synchronized void submit(String command, Map<String, Object> args) {
+		if(!coalescable.contains(command)) {
+			var temp = new ArrayList<>(pending.values());
+			temp.add(new CommandData(command, args));
+
+			pending.clear();
+			cancel();
+
+			sink.accept(temp);
+			return;
+		}
+
+		var key = command + ":" + args.get("layer");
+
+		//Remove first so that the entry moves to the end and the order of the last commands is kept
+		pending.remove(key);
+		pending.put(key, new CommandData(command, args));
+
+		if(scheduled == null) {
+			scheduled = executor.schedule(this::flush, window.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Sends all pending commands
+	 */
+	synchronized void flush() {
+		cancel();
+
+		if(pending.isEmpty()) {
+			return;
+		}
+
+		var temp = new ArrayList<>(pending.values());
+		pending.clear();
+
+		sink.accept(temp);
+	}
+
+	private void cancel() {
+		if(scheduled != null) {
+			scheduled.cancel(false);
+			scheduled = null;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package de.mineking.audiolink.client.processing;
+
+/**
+ * How short underruns of the buffer should be concealed.
+ *
+ * @see de.mineking.audiolink.client.main.AudioLinkConfig#setConcealment(ConcealmentMode, java.time.Duration)
+ */
+public enum ConcealmentMode {
+	/**
+	 * Don't conceal underruns. No audio is provided until the buffer is refilled
+	 */
+	NONE,
+	/**
+	 * Repeat the last frame
+	 */
+	REPEAT,
+	/**
+	 * Repeat the last frame while fading it out linearly
+	 */
+	FADE
+}
@@ -0,0 +1,15 @@
+package de.mineking.audiolink.client.processing;
+
+/**
+ * The shape of a gain ramp of {@link AudioLinkConnection#fadeTo(float, java.time.Duration, FadeCurve)}
+ */
+public enum FadeCurve {
+	/**
+	 * The gain changes by the same amount for every sample
+	 */
+	LINEAR,
+	/**
+	 * The gain changes by the same factor for every sample, so that the loudness changes evenly. Fades to or from silence start or end at -60dB
+	 */
+	EXPONENTIAL
+}
@@ -0,0 +1,30 @@
+package de.mineking.audiolink.client.processing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A source of 20ms frames of 48kHz 16-bit big-endian stereo PCM audio
+ *
+ * @see AudioMixer
+ */
+public interface FrameProvider {
+	/**
+	 * Takes the next frame. If this returns {@code true}, the frame can be accessed with {@link #getProvidedFrame()}.
+	 * This is not a side effect free check: every call consumes a frame, even if the frame is never accessed. Call it exactly once per 20ms of audio that is sent.
+	 *
+	 * @return whether there is audio to play for this frame
+	 */
+	boolean canProvide();
+
+	/**
+	 * @return the frame that was taken by the last call of {@link #canProvide()}. The frame is located between the position and the limit of the buffer and is only valid until the next frame is taken. Calling this does not take another frame
+	 */
+	ByteBuffer getProvidedFrame();
+
+	/**
+	 * @return whether this provider will never provide audio again. A {@link AudioMixer} removes finished inputs automatically
+	 */
+	default boolean isFinished() {
+		return false;
+	}
+}
@@ -0,0 +1,36 @@
+package de.mineking.audiolink.client.processing;
+
+/**
+ * The state of a frame that was taken from the buffer of an {@link AudioLinkConnection}.
+ *
+ * @see AudioLinkConnection#getFrameState()
+ */
+public enum FrameState {
+	/**
+	 * The frame contains audio sent by the server
+	 */
+	AUDIO(true),
+	/**
+	 * The server sent silence for this frame, for example because no track is playing
+	 */
+	SILENCE(false),
+	/**
+	 * The buffer was empty, so there was no frame to play
+	 */
+	UNDERRUN(false),
+	/**
+	 * The buffer was empty, but the gap was concealed using the last frame
+	 *
+	 * @see ConcealmentMode
+	 */
+	CONCEALED(true);
+
+	/**
+	 * Whether a frame with this state contains audio data
+	 */
+	public final boolean hasAudio;
+
+	FrameState(boolean hasAudio) {
+		this.hasAudio = hasAudio;
+	}
+}
@@ -0,0 +1,132 @@
+package de.mineking.audiolink.client.processing;
+
+import java.time.Duration;
+
+/**
+ * Applies a gain to the provided frames in place. Gain changes are ramped sample by sample, so that they take effect within the next frame without clicks.
+ * <p>
+ * {@link #fadeTo(float, int, FadeCurve)} may be called from any thread, {@link #process(byte[], int)} and {@link #advance(int)} are called from the audio send thread.
+ */
+class GainStage {
+	//-60dB, used as start or end of exponential fades from or to silence
+	private final static float SILENCE = 0.001f;
+	//The ramp length is counted in samples per channel as int, which overflows after about 12.4 hours
+	final static Duration MAX_FADE = Duration.ofHours(12);
+
+	private record Fade(float target, int samples, FadeCurve curve) {
+	}
+
+	private volatile Fade pending;
+	private volatile float target = 1;
+
+	//Only accessed by the audio send thread
+	private float gain = 1;
+	private float end = 1;
+	private float step;
+	private int remaining = 0;
+	private FadeCurve curve = FadeCurve.LINEAR;
+
+	/**
+	 * @param target  the target gain. Has to be finite and not negative
+	 * @param samples the length of the ramp in samples per channel. {@code 0} changes the gain immediately
+	 * @param curve   the {@link FadeCurve} of the ramp
+	 */
+	void fadeTo(float target, int samples, FadeCurve curve) {
+		this.target = target;
+		this.pending = new Fade(target, samples, curve);
+	}
+
+	/**
+	 * @return the gain that is reached after the current ramp
+	 */
+	float getTarget() {
+		return target;
+	}
+
+	private void update() {
+		var fade = pending;
+
+		if(fade == null) {
+			return;
+		}
+
+		pending = null;
+
+		end = fade.target;
+		curve = fade.curve;
+		remaining = fade.samples;
+
+		if(remaining <= 0) {
+			gain = end;
+			return;
+		}
+
+		if(curve == FadeCurve.EXPONENTIAL) {
+			gain = Math.max(gain, SILENCE);
+			step = (float) Math.pow(Math.max(end, SILENCE) / gain, 1.0 / remaining);
+		}
+
+		else {
+			step = (end - gain) / remaining;
+		}
+	}
+
+	private void next() {
+		gain = curve == FadeCurve.EXPONENTIAL ? gain * step : gain + step;
+
+		if(--remaining == 0) {
+			gain = end;
+		}
+	}
+
+	/**
+	 * Applies the gain to a frame in place
+	 *
+	 * @param frame  the frame
+	 * @param length the length of the frame in bytes
+	 */
+	void process(byte[] frame, int length) {
+		update();
+
+		var samples = length / 4;
+		var i = 0;
+
+		for(; i < samples && remaining > 0; i++) {
+			var offset = i * 4;
+
+			PcmUtils.writeSample(frame, offset, (int) (PcmUtils.readSample(frame, offset) * gain));
+			PcmUtils.writeSample(frame, offset + 2, (int) (PcmUtils.readSample(frame, offset + 2) * gain));
+
+			next();
+		}
+
+		if(gain == 1 || i == samples) {
+			return;
+		}
+
+		if(gain == 0) {
+			for(int j = i * 4; j < samples * 4; j++) {
+				frame[j] = 0;
+			}
+
+			return;
+		}
+
+		for(int j = i * 4; j < samples * 4; j += 2) {
+			PcmUtils.writeSample(frame, j, (int) (PcmUtils.readSample(frame, j) * gain));
+		}
+	}
+
+	/**
+	 * Advances the current ramp without processing a frame, so that ramps keep their timing while no audio is played
+	 *
+	 * @param samples the amount of samples per channel to skip
+	 */
+	void advance(int samples) {
+		update();
+
+		for(int i = 0; i < samples && remaining > 0; i++) {
+			next();
+		}
+	}
+}
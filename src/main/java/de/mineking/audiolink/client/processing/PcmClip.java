@@ -0,0 +1,43 @@
+package de.mineking.audiolink.client.processing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A short clip of raw 48kHz 16-bit big-endian stereo PCM audio that is played locally, for example as input of an {@link AudioMixer}.
+ * The clip data is not copied, so the same array can be shared by multiple clips that play at the same time.
+ */
+public class PcmClip implements FrameProvider {
+	private final ByteBuffer data;
+	private int position = 0;
+
+	/**
+	 * @param data the PCM data of the clip
+	 */
+	public PcmClip(byte[] data) {
+		this.data = ByteBuffer.wrap(data).asReadOnlyBuffer();
+	}
+
+	@Override
+	public boolean canProvide() {
+		var start = position;
+
+		if(start >= data.capacity()) {
+			return false;
+		}
+
+		position = Math.min(start + AudioFrameBuffer.FRAME_SIZE, data.capacity());
+		data.limit(position).position(start);
+
+		return true;
+	}
+
+	@Override
+	public ByteBuffer getProvidedFrame() {
+		return data;
+	}
+
+	@Override
+	public boolean isFinished() {
+		return position >= data.capacity();
+	}
+}
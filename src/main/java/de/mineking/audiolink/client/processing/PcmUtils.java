@@ -0,0 +1,41 @@
+package de.mineking.audiolink.client.processing;
+
+/**
+ * Helper methods to process 48kHz 16-bit big-endian stereo PCM frames in place. None of these methods allocate memory.
+ */
+final class PcmUtils {
+	private PcmUtils() {}
+
+	/**
+	 * Copies a frame while applying a gain that changes linearly from {@code from} to {@code to} over the frame. Both channels of a sample use the same gain.
+	 *
+	 * @param source the source frame
+	 * @param target the target frame. This may be the same array as the source
+	 * @param length the length of the frame in bytes
+	 * @param from   the gain at the start of the frame
+	 * @param to     the gain at the end of the frame
+	 */
+	static void applyRamp(byte[] source, byte[] target, int length, float from, float to) {
+		var samples = length / 4;
+		var step = samples == 0 ? 0 : (to - from) / samples;
+		var gain = from;
+
+		for(int i = 0; i < samples * 4; i += 4) {
+			writeSample(target, i, (int) (readSample(source, i) * gain));
+			writeSample(target, i + 2, (int) (readSample(source, i + 2) * gain));
+
+			gain += step;
+		}
+	}
+
+	static int readSample(byte[] data, int offset) {
+		return (short) ((data[offset] << 8) | (data[offset + 1] & 0xFF));
+	}
+
+	static void writeSample(byte[] data, int offset, int sample) {
+		sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+
+		data[offset] = (byte) (sample >> 8);
+		data[offset + 1] = (byte) sample;
+	}
+}
@@ -0,0 +1,118 @@
+package de.mineking.audiolink.client.processing;
+
+import de.mineking.audiolink.client.data.PlayerLayer;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the requests of a connection that wait for a response. Every request gets a correlation id that the server sends back with the response.
+ * Requests that don't get a response in time are completed exceptionally with a {@link TimeoutException}.
+ */
+class PendingRequests {
+	private record Request(int id, long sequence, String command, PlayerLayer layer, CompletableFuture<ByteBuffer> future) {
+	}
+
+	private final ScheduledExecutorService executor;
+	private final Duration timeout;
+
+	//Correlation ids wrap around, so requests are ordered by a separate sequence that never does
+	private final AtomicLong nextSequence = new AtomicLong();
+	private final Map<Integer, Request> requests = new ConcurrentHashMap<>();
+	//ConcurrentSkipListMap keeps the requests ordered by sequence, which is required to answer responses of servers that don't send correlation ids
+	private final ConcurrentNavigableMap<Long, Request> ordered = new ConcurrentSkipListMap<>();
+
+	PendingRequests(ScheduledExecutorService executor, Duration timeout) {
+		this.executor = executor;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Registers a new request
+	 *
+	 * @param command the name of the command
+	 * @param layer   the {@link PlayerLayer} the command targets
+	 * @param future  the future to complete with the response
+	 * @return the correlation id of the request
+	 */
+	int register(String command, PlayerLayer layer, CompletableFuture<ByteBuffer> future) {
+		var sequence = nextSequence.getAndIncrement();
+		var id = (int) sequence & Integer.MAX_VALUE;
+		var request = new Request(id, sequence, command, layer, future);
+
+		requests.put(id, request);
+		ordered.put(sequence, request);
+
+		var task = executor.schedule(() -> {
+			if(remove(request)) {
+				future.completeExceptionally(new TimeoutException("No response for request " + id + " after " + timeout.toMillis() + "ms"));
+			}
+		}, timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+		future.whenComplete((x, e) -> {
+			remove(request);
+			task.cancel(false);
+		});
+
+		return id;
+	}
+
+	/**
+	 * @param request the request to remove
+	 * @return whether the request was still pending. Only one caller can remove a request
+	 */
+	private boolean remove(Request request) {
+		if(!requests.remove(request.id, request)) {
+			return false;
+		}
+
+		ordered.remove(request.sequence, request);
+		return true;
+	}
+
+	/**
+	 * Completes a request
+	 *
+	 * @param id       the correlation id
+	 * @param response the response content
+	 */
+	void complete(int id, ByteBuffer response) {
+		var request = requests.get(id);
+
+		if(request != null && remove(request)) {
+			request.future.complete(response);
+		}
+	}
+
+	/**
+	 * Completes the oldest request for a command on a layer. This is used for responses of servers that don't support correlation ids
+	 *
+	 * @param command  the name of the command
+	 * @param layer    the {@link PlayerLayer} the response belongs to
+	 * @param response the response content
+	 */
+	void completeOldest(String command, PlayerLayer layer, ByteBuffer response) {
+		for(var request : ordered.values()) {
+			if(request.command.equals(command) && request.layer == layer && remove(request)) {
+				request.future.complete(response);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Completes all pending requests exceptionally
+	 *
+	 * @param error the error
+	 */
+	void failAll(Throwable error) {
+		for(var request : ordered.values()) {
+			if(remove(request)) {
+				request.future.completeExceptionally(error);
+			}
+		}
+	}
+}
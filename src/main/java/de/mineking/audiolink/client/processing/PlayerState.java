@@ -0,0 +1,254 @@
+package de.mineking.audiolink.client.processing;
+
+import de.mineking.audiolink.client.data.TrackLoader;
+import de.mineking.audiolink.client.data.track.TrackData;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The client-side view of the state of a single {@link de.mineking.audiolink.client.data.PlayerLayer}. This is used to restore the player after the connection was re-established and to answer position queries locally.
+ * <p>
+ * Positions are tracked relative to the amount of frames the connection has provided. A frame number refers to the frame that is provided after all currently buffered frames.
+ */
+class PlayerState {
+	private Map<String, Object> play;
+	private TrackLoader loader;
+	private Queued queued;
+	private TrackData track;
+	private boolean paused = false;
+	private Integer volume;
+
+	/**
+	 * A track that should be played after the current one
+	 *
+	 * @param params the parameters of the play command
+	 * @param loader the {@link TrackLoader} that created the parameters
+	 * @param sent   whether the track was queued on the source. Otherwise, the client has to play it once the current track finished
+	 */
+	record Queued(Map<String, Object> params, TrackLoader loader, boolean sent) {
+	}
+
+	//Incremented for every play request, so that a play request that waited for its data does not replace a newer one
+	private long playRequest = 0;
+	private boolean retried = false;
+
+	private long position = 0;
+	private long syncFrame = 0;
+
+	/**
+	 * Called when a new track is played
+	 *
+	 * @param params the parameters of the play command
+	 * @param loader the {@link TrackLoader} that created the parameters
+	 * @param frame  the frame number at which the track starts playing
+	 */
+	synchronized void play(Map<String, Object> params, TrackLoader loader, long frame) {
+		this.play = new HashMap<>(params);
+		this.loader = loader;
+		this.position = ((Number) params.get("position")).longValue();
+		this.syncFrame = frame;
+	}
+
+	/**
+	 * @return the id of a new play request. Any earlier request that was not executed yet becomes obsolete
+	 */
+	synchronized long requestPlay() {
+		this.retried = false;
+		return ++playRequest;
+	}
+
+	/**
+	 * @return the id of the latest play request
+	 */
+	synchronized long getPlayRequest() {
+		return playRequest;
+	}
+
+	/**
+	 * Called when the data of a play request was applied
+	 *
+	 * @param request the id of the request
+	 * @param params  the parameters of the play command
+	 * @param loader  the {@link TrackLoader} that created the parameters
+	 * @param frame   the frame number at which the track starts playing
+	 * @return whether the request is still the latest one and the play command should be sent
+	 */
+	synchronized boolean play(long request, Map<String, Object> params, TrackLoader loader, long frame) {
+		if(request != playRequest) {
+			return false;
+		}
+
+		play(params, loader, frame);
+		return true;
+	}
+
+	/**
+	 * Called when the current track failed to load
+	 *
+	 * @return whether the track references uploaded data that should be uploaded and played again. This is only allowed once per track
+	 */
+	synchronized boolean retryUpload() {
+		if(retried || play == null || loader == null || !play.containsKey("upload")) {
+			return false;
+		}
+
+		retried = true;
+		return true;
+	}
+
+	/**
+	 * Called when the server reported that the track started playing
+	 *
+	 * @param track the {@link TrackData} of the track
+	 * @param frame the frame number at which the track starts playing
+	 */
+	synchronized void started(TrackData track, long frame) {
+		this.track = track;
+		this.syncFrame = frame;
+	}
+
+	/**
+	 * Called when the server reported the position of the current track
+	 *
+	 * @param position the position reported by the server in milliseconds
+	 * @param frame    the frame number at which the reported position is played
+	 */
+	synchronized void sync(long position, long frame) {
+		if(play == null) {
+			return;
+		}
+
+		this.position = position;
+		this.syncFrame = frame;
+	}
+
+	/**
+	 * @param position the new position in milliseconds
+	 * @param frame    the frame number at which the new position is reached
+	 */
+	synchronized void seek(long position, long frame) {
+		this.position = position;
+		this.syncFrame = frame;
+	}
+
+	/**
+	 * @param state the new pause state
+	 * @param frame the frame number at which the new state takes effect
+	 */
+	synchronized void pause(boolean state, long frame) {
+		if(state == paused) {
+			return;
+		}
+
+		this.position = getPosition(frame);
+		this.syncFrame = frame;
+		this.paused = state;
+	}
+
+	synchronized void volume(int volume) {
+		this.volume = volume;
+	}
+
+	synchronized void stop() {
+		this.playRequest++;
+		this.play = null;
+		this.loader = null;
+		this.queued = null;
+		this.track = null;
+	}
+
+	synchronized boolean isPlaying() {
+		return play != null;
+	}
+
+	/**
+	 * @param frame the frame number
+	 * @return the estimated position of the track at the specified frame in milliseconds
+	 */
+	synchronized long getPosition(long frame) {
+		if(play == null) {
+			return 0;
+		}
+
+		var result = paused ? position : position + Math.max(0, frame - syncFrame) * 20;
+
+		//The track ends at its length, so never report a position after that
+		if(track != null && !track.isStream && track.length > 0) {
+			result = Math.min(result, track.length);
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return a copy of the parameters of the current play command or {@code null} if no track is playing
+	 */
+	synchronized Map<String, Object> getPlay() {
+		return play == null ? null : new HashMap<>(play);
+	}
+
+	/**
+	 * @param params the parameters of the play command of the next track
+	 * @param loader the {@link TrackLoader} that created the parameters
+	 * @param sent   whether the track is queued on the source
+	 * @return the resulting {@link Queued}
+	 */
+	synchronized Queued queue(Map<String, Object> params, TrackLoader loader, boolean sent) {
+		this.queued = new Queued(new HashMap<>(params), loader, sent);
+		return queued;
+	}
+
+	/**
+	 * Replaces the queued track, for example after it was queued on a new session
+	 *
+	 * @param previous the {@link Queued} to replace
+	 * @param params   the new parameters of the play command
+	 * @param sent     whether the track is queued on the source
+	 * @return the resulting {@link Queued} or {@code null} if the queued track changed in the meantime
+	 */
+	synchronized Queued requeue(Queued previous, Map<String, Object> params, boolean sent) {
+		if(queued != previous) {
+			return null;
+		}
+
+		this.queued = new Queued(new HashMap<>(params), previous.loader(), sent);
+		return queued;
+	}
+
+	synchronized Queued getQueued() {
+		return queued;
+	}
+
+	/**
+	 * Called when the current track finished. If a track is queued, it becomes the current track.
+	 *
+	 * @param frame the frame number at which the next track starts playing
+	 * @return the track that starts playing or {@code null} if no track was queued
+	 */
+	synchronized Queued next(long frame) {
+		var next = queued;
+
+		if(next == null) {
+			stop();
+			return null;
+		}
+
+		queued = null;
+		play(next.params(), next.loader(), frame);
+
+		return next;
+	}
+
+	synchronized TrackLoader getLoader() {
+		return loader;
+	}
+
+	synchronized boolean isPaused() {
+		return paused;
+	}
+
+	synchronized Integer getVolume() {
+		return volume;
+	}
+}
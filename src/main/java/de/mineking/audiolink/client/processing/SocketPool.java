@@ -0,0 +1,241 @@
+package de.mineking.audiolink.client.processing;
+
+import de.mineking.audiolink.client.main.AudioLinkClient;
+import de.mineking.audiolink.client.main.AudioLinkSource;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manages the WebSocket connections of an {@link AudioLinkClient}. If multiplexing is enabled, many {@link AudioLinkConnection}s share a small amount of sockets per source.
+ * Otherwise, every connection gets its own socket.
+ *
+ * @see de.mineking.audiolink.client.main.AudioLinkConfig#setMultiplexing(boolean, int)
+ */
+public class SocketPool {
+	final AudioLinkClient client;
+	private final Map<AudioLinkSource, List<AudioLinkSocket>> sockets = new HashMap<>();
+	private final Set<AudioLinkSocket> dedicated = ConcurrentHashMap.newKeySet();
+	private final Map<AudioLinkSource, AtomicInteger> sessionCounts = new ConcurrentHashMap<>();
+	private final Map<AudioLinkSource, Deque<Instant>> openedSessions = new ConcurrentHashMap<>();
+
+	private final Queue<Runnable> pendingHandshakes = new LinkedList<>();
+	private int activeHandshakes = 0;
+
+	private volatile boolean shutdown = false;
+
+	public SocketPool(AudioLinkClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * Opens a new session for a connection. This method does not block.
+	 *
+	 * @param source     the {@link AudioLinkSource} to connect to
+	 * @param connection the {@link AudioLinkConnection} that owns the session
+	 * @param clientInfo a string identifying the session. It will be displayed in the server logs
+	 * @return a {@link CompletableFuture} that is completed with the new session once it is ready to use
+	 */
+	CompletableFuture<AudioLinkSession> openSession(AudioLinkSource source, AudioLinkConnection connection, String clientInfo) {
+		if(shutdown) {
+			return CompletableFuture.failedFuture(new IOException("Socket pool was shut down"));
+		}
+
+		if(!client.config.multiplexing) {
+			var socket = new AudioLinkSocket(this, source, false);
+			var session = socket.createSession(connection, clientInfo);
+
+			dedicated.add(socket);
+
+			return handshake(socket, clientInfo).thenApply(s -> session);
+		}
+
+		AudioLinkSocket socket;
+		AudioLinkSession session;
+
+		synchronized(this) {
+			var list = sockets.computeIfAbsent(source, x -> new ArrayList<>());
+
+			socket = list.stream()
+					.filter(s -> !s.isClosing() && !s.isClosed() && s.getSessionCount() < client.config.maxSessionsPerSocket)
+					.findFirst().orElse(null);
+
+			if(socket == null) {
+				socket = new AudioLinkSocket(this, source, true);
+				handshake(socket, "multiplexed socket #" + list.size());
+
+				list.add(socket);
+			}
+
+			//Reserve the slot while holding the lock, so that concurrent calls see it and release() cannot close the socket in the meantime
+			session = socket.createSession(connection, clientInfo);
+		}
+
+		return socket.getOpened().thenApply(s -> {
+			s.openSession(session, clientInfo);
+			return session;
+		});
+	}
+
+	/**
+	 * Opens a socket once fewer than {@link de.mineking.audiolink.client.main.AudioLinkConfig#maxConcurrentHandshakes} other handshakes are running.
+	 *
+	 * @param socket     the socket to open
+	 * @param clientInfo a string identifying the socket
+	 * @return a {@link CompletableFuture} that is completed when the socket is ready to use
+	 */
+	private CompletableFuture<AudioLinkSocket> handshake(AudioLinkSocket socket, String clientInfo) {
+		Runnable task = () -> {
+			if(shutdown) {
+				socket.getOpened().completeExceptionally(new IOException("Socket pool was shut down"));
+				finishHandshake();
+
+				return;
+			}
+
+			socket.open(clientInfo).whenComplete((s, e) -> finishHandshake());
+		};
+
+		synchronized(pendingHandshakes) {
+			if(activeHandshakes >= client.config.maxConcurrentHandshakes) {
+				pendingHandshakes.add(task);
+				return socket.getOpened();
+			}
+
+			activeHandshakes++;
+		}
+
+		task.run();
+		return socket.getOpened();
+	}
+
+	private void finishHandshake() {
+		Runnable next;
+
+		synchronized(pendingHandshakes) {
+			next = pendingHandshakes.poll();
+
+			if(next == null) {
+				activeHandshakes--;
+				return;
+			}
+		}
+
+		next.run();
+	}
+
+	/**
+	 * Called when a session of the socket was closed. Closes the socket if it has no sessions left.
+	 *
+	 * @param socket the socket
+	 */
+	synchronized void release(AudioLinkSocket socket) {
+		if(socket.getSessionCount() == 0) {
+			remove(socket);
+			socket.close();
+		}
+	}
+
+	/**
+	 * Removes a socket from this pool
+	 *
+	 * @param socket the socket to remove
+	 */
+	synchronized void remove(AudioLinkSocket socket) {
+		dedicated.remove(socket);
+
+		var list = sockets.get(socket.source);
+
+		if(list != null) {
+			list.remove(socket);
+		}
+	}
+
+	void sessionOpened(AudioLinkSource source) {
+		sessionCounts.computeIfAbsent(source, x -> new AtomicInteger()).incrementAndGet();
+
+		var status = client.getSourceMonitor().getStatus(source);
+		var opened = openedSessions.computeIfAbsent(source, x -> new ArrayDeque<>());
+
+		synchronized(opened) {
+			//Sessions opened before the latest status are already included in the connections the source reported
+			while(status != null && !opened.isEmpty() && opened.peekFirst().isBefore(status.timestamp())) {
+				opened.pollFirst();
+			}
+
+			opened.addLast(Instant.now());
+		}
+	}
+
+	void sessionClosed(AudioLinkSource source) {
+		sessionCounts.get(source).decrementAndGet();
+	}
+
+	/**
+	 * @param source the {@link AudioLinkSource}
+	 * @return the amount of sessions this client currently has with the source, including sessions that are still connecting
+	 */
+	public int getSessionCount(AudioLinkSource source) {
+		var count = sessionCounts.get(source);
+		return count == null ? 0 : count.get();
+	}
+
+	/**
+	 * @param source the {@link AudioLinkSource}
+	 * @param since  the point in time to count from
+	 * @return the amount of sessions this client opened with the source after the specified point in time, including sessions that were closed again
+	 */
+	public int getSessionsOpenedSince(AudioLinkSource source, Instant since) {
+		var opened = openedSessions.get(source);
+
+		if(opened == null) {
+			return 0;
+		}
+
+		synchronized(opened) {
+			var count = 0;
+			var iterator = opened.descendingIterator();
+
+			while(iterator.hasNext() && !iterator.next().isBefore(since)) {
+				count++;
+			}
+
+			return count;
+		}
+	}
+
+	/**
+	 * @return the amount of open sockets in this pool. Dedicated sockets are not counted
+	 */
+	public synchronized int getSocketCount() {
+		return sockets.values().stream().mapToInt(List::size).sum();
+	}
+
+	/**
+	 * @return whether {@link #shutdown()} was called. Connections do not reconnect once the pool is shut down
+	 */
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	/**
+	 * Closes all sockets in this pool, including dedicated sockets. No new sessions can be opened afterward
+	 */
+	public void shutdown() {
+		shutdown = true;
+
+		var temp = new ArrayList<AudioLinkSocket>(dedicated);
+
+		synchronized(this) {
+			sockets.values().forEach(temp::addAll);
+			sockets.clear();
+			dedicated.clear();
+		}
+
+		temp.forEach(AudioLinkSocket::close);
+	}
+}